@@ -0,0 +1,110 @@
+package com.github.tkshio.jgammon.common.context;
+
+import com.github.tkshio.jgammon.common.director.GameInfo;
+import com.github.tkshio.jgammon.common.director.Player;
+import com.github.tkshio.jgammon.common.evaluator.Eval;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 呼び出しを記録しておき、後から別のGameContextHandlerに対して同じ順序で再生するクラス
+ *
+ * <p>対局を並列に実行する際、各対局の進行をこれに記録させ、対局番号順に再生することで、
+ * 実際のGameContextHandlerには1局ずつ順に実行した場合と同じ順序で通知を行う。
+ *
+ * <p>一つの対局の中で使用することを前提としており、スレッドセーフではない。
+ *
+ * @param <STATE> 局面を表すクラス
+ */
+public class RecordingGameContextHandler<STATE> implements GameContextHandler<STATE> {
+    private final List<Consumer<GameContextHandler<STATE>>> records = new ArrayList<>();
+
+    /**
+     * 記録された呼び出しを、記録された順に再生する
+     *
+     * @param handler 再生先
+     */
+    public void replay(GameContextHandler<STATE> handler) {
+        records.forEach(record -> record.accept(handler));
+    }
+
+    @Override
+    public void startTrials(int fromInclusive, int n) {
+        records.add(handler -> handler.startTrials(fromInclusive, n));
+    }
+
+    @Override
+    public void endTrials(long total,
+                          String redLabel, int redPoints,
+                          String whiteLabel, int whitePoints,
+                          String... msgs) {
+        records.add(handler -> handler.endTrials(total,
+                redLabel, redPoints,
+                whiteLabel, whitePoints,
+                msgs));
+    }
+
+    @Override
+    public void abortGame(STATE state) {
+        records.add(handler -> handler.abortGame(state));
+    }
+
+    @Override
+    public void startGame(GameInfo info, STATE initialState) {
+        records.add(handler -> handler.startGame(info, initialState));
+    }
+
+    @Override
+    public void whiteWin(GameInfo info, Player<STATE> winner, Player<STATE> loser, STATE finalState) {
+        records.add(handler -> handler.whiteWin(info, winner, loser, finalState));
+    }
+
+    @Override
+    public void redWin(GameInfo info, Player<STATE> winner, Player<STATE> loser, STATE finalState) {
+        records.add(handler -> handler.redWin(info, winner, loser, finalState));
+    }
+
+    @Override
+    public void beginWhitePly(String label, STATE state) {
+        records.add(handler -> handler.beginWhitePly(label, state));
+    }
+
+    @Override
+    public void endWhitePly(String label, STATE state) {
+        records.add(handler -> handler.endWhitePly(label, state));
+    }
+
+    @Override
+    public void beginRedPly(String label, STATE state) {
+        records.add(handler -> handler.beginRedPly(label, state));
+    }
+
+    @Override
+    public void endRedPly(String label, STATE state) {
+        records.add(handler -> handler.endRedPly(label, state));
+    }
+
+    @Override
+    public void startEvaluation(String label, STATE current, Supplier<Stream<STATE>> candidates) {
+        records.add(handler -> handler.startEvaluation(label, current, candidates));
+    }
+
+    @Override
+    public void redMoveEvaluated(STATE state, Eval e) {
+        records.add(handler -> handler.redMoveEvaluated(state, e));
+    }
+
+    @Override
+    public void whiteMoveEvaluated(STATE state, Eval e) {
+        records.add(handler -> handler.whiteMoveEvaluated(state, e));
+    }
+
+    @Override
+    public void endEvaluation(String label, STATE state, Eval e) {
+        records.add(handler -> handler.endEvaluation(label, state, e));
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.tkshio.jgammon.common.context;
+
+import com.github.tkshio.jgammon.common.director.GameInfo;
+import com.github.tkshio.jgammon.common.director.Player;
+
+/**
+ * 対局結果ごとに逐次確率比検定（SPRT）を更新し、勝敗が判定できた時点を知らせるクラス
+ *
+ * <p>対象のプレイヤーの勝率pについて、帰無仮説 p = p0 と対立仮説 p = p1 の対数尤度比を、
+ * 勝敗の通知ごとに加算する。対数尤度比が上限 log((1-β)/α) 以上になれば対立仮説を、
+ * 下限 log(β/(1-α)) 以下になれば帰無仮説を採択し、以降は{@link #isDecided()}が真を返す。
+ * 中断した対局は集計しない。
+ *
+ * <p>{@code BackgammonAutoPlay}の{@code stopCondition}に{@link #isDecided()}を指定すれば、
+ * 判定できた時点で対局を打ち切ることができる。
+ *
+ * @param <STATE> 局面を表すクラス
+ */
+public class SPRTGameContextHandler<STATE> implements GameContextHandler<STATE> {
+    /**
+     * 検定の判定
+     */
+    public enum Decision {
+        /**
+         * 判定できていない
+         */
+        UNDECIDED,
+        /**
+         * 帰無仮説（p = p0）を採択した
+         */
+        ACCEPT_H0,
+        /**
+         * 対立仮説（p = p1）を採択した
+         */
+        ACCEPT_H1
+    }
+
+    private final Player<STATE> player;
+    private final double p0;
+    private final double p1;
+    private final double winLLR;
+    private final double lossLLR;
+    private final double lowerBound;
+    private final double upperBound;
+
+    private long wins = 0;
+    private long losses = 0;
+    private double llr = 0;
+    private Decision decision = Decision.UNDECIDED;
+
+    private SPRTGameContextHandler(Player<STATE> player, double p0, double p1, double alpha, double beta) {
+        if (!(0 < p0 && p0 < p1 && p1 < 1)) {
+            throw new IllegalArgumentException("0 < p0 < p1 < 1 is required: p0=" + p0 + ", p1=" + p1);
+        }
+        if (!(0 < alpha && alpha < 1 && 0 < beta && beta < 1)) {
+            throw new IllegalArgumentException("alpha and beta must be in (0, 1): alpha=" + alpha + ", beta=" + beta);
+        }
+        this.player = player;
+        this.p0 = p0;
+        this.p1 = p1;
+        this.winLLR = Math.log(p1 / p0);
+        this.lossLLR = Math.log((1 - p1) / (1 - p0));
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * ファクトリーメソッド
+     *
+     * @param player 勝率を検定するプレイヤー（勝者・敗者との比較は同一性による）
+     * @param p0     帰無仮説の勝率
+     * @param p1     対立仮説の勝率、p0より大きい
+     * @param alpha  第一種の誤り（帰無仮説が正しいのに対立仮説を採択する）の確率の上限
+     * @param beta   第二種の誤り（対立仮説が正しいのに帰無仮説を採択する）の確率の上限
+     * @param <STATE> 局面を表すクラス
+     * @return 生成されたオブジェクト
+     */
+    public static <STATE> SPRTGameContextHandler<STATE> create(Player<STATE> player,
+                                                               double p0, double p1,
+                                                               double alpha, double beta) {
+        return new SPRTGameContextHandler<>(player, p0, p1, alpha, beta);
+    }
+
+    @Override
+    public void whiteWin(GameInfo info, Player<STATE> winner, Player<STATE> loser, STATE finalState) {
+        update(winner, loser);
+    }
+
+    @Override
+    public void redWin(GameInfo info, Player<STATE> winner, Player<STATE> loser, STATE finalState) {
+        update(winner, loser);
+    }
+
+    private synchronized void update(Player<STATE> winner, Player<STATE> loser) {
+        // 判定後の結果や、対象のプレイヤー以外どうしの対局は集計しない
+        if (decision != Decision.UNDECIDED || (winner == player) == (loser == player)) {
+            return;
+        }
+        if (winner == player) {
+            wins++;
+            llr += winLLR;
+        } else {
+            losses++;
+            llr += lossLLR;
+        }
+
+        if (llr >= upperBound) {
+            decision = Decision.ACCEPT_H1;
+        } else if (llr <= lowerBound) {
+            decision = Decision.ACCEPT_H0;
+        }
+    }
+
+    /**
+     * 判定できていれば真を返す
+     *
+     * @return 判定できていれば真
+     */
+    public synchronized boolean isDecided() {
+        return decision != Decision.UNDECIDED;
+    }
+
+    /**
+     * 現時点の判定を返す
+     *
+     * @return 判定
+     */
+    public synchronized Decision getDecision() {
+        return decision;
+    }
+
+    /**
+     * 現時点の対数尤度比を返す
+     *
+     * @return 対数尤度比
+     */
+    public synchronized double getLLR() {
+        return llr;
+    }
+
+    /**
+     * 集計した勝数を返す
+     *
+     * @return 勝数
+     */
+    public synchronized long getWins() {
+        return wins;
+    }
+
+    /**
+     * 集計した負数を返す
+     *
+     * @return 負数
+     */
+    public synchronized long getLosses() {
+        return losses;
+    }
+
+    /**
+     * 集計結果をテキスト出力する
+     *
+     * @return 集計結果を示すテキスト
+     */
+    public synchronized String summarize() {
+        return String.format("SPRT(%s, p0:%.3f, p1:%.3f): %s after %d-%d (llr:%+.3f, bounds:[%+.3f, %+.3f])",
+                player.getName(), p0, p1, decision, wins, losses, llr, lowerBound, upperBound);
+    }
+}
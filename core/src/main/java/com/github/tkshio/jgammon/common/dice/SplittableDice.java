@@ -0,0 +1,104 @@
+package com.github.tkshio.jgammon.common.dice;
+
+/**
+ * シード値と対局番号の組から、対局ごとに独立した乱数系列を生成する{@link Dice}の実装
+ *
+ * <p>乱数は、（シード値、対局番号）から求めたキーとカウンターをハッシュ関数で混ぜ合わせて生成する（カウンターベースの乱数）。
+ * したがって、任意の対局の乱数系列を、それ以前の対局を経由せずに直接得ることができる。
+ * 対局を並列に実行する場合も、各対局で{@link #create(int, long, long)}により生成したダイスを使用すれば、
+ * 実行順序によらず、1局ずつ順に実行した場合と同じ出目となる。
+ *
+ * <p>{@code reset()}が呼ばれるたびに、次の対局番号の乱数系列に切り替わる（最初の呼び出しでは、生成時に指定した対局番号のまま）。
+ * 内部状態は同期されないので、一つのダイスを複数のスレッドで共有してはならない。
+ */
+public class SplittableDice implements Dice {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int size;
+    private final long seed;
+    private final long firstGame;
+    private int resetCount = 0;
+    private long key;
+    private long counter = 0;
+
+    private SplittableDice(int size, long seed, long firstGame) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        this.size = size;
+        this.seed = seed;
+        this.firstGame = firstGame;
+        this.key = streamKey(seed, firstGame);
+    }
+
+    /**
+     * ファクトリーメソッド
+     *
+     * <p>最初の対局番号を0として{@link #create(int, long, long)}を呼ぶ
+     *
+     * @param size 最大の目（最小の目は常に１）
+     * @param seed シード値
+     * @return 構築されたダイス
+     */
+    public static Dice create(int size, long seed) {
+        return create(size, seed, 0);
+    }
+
+    /**
+     * ファクトリーメソッド
+     *
+     * @param size      最大の目（最小の目は常に１）
+     * @param seed      シード値
+     * @param firstGame 最初の対局の対局番号
+     * @return 構築されたダイス
+     */
+    public static Dice create(int size, long seed, long firstGame) {
+        return new SplittableDice(size, seed, firstGame);
+    }
+
+    @Override
+    public int roll() {
+        // java.util.Random#nextInt(int)と同様に、偏りが出ないよう範囲外の値を棄却する
+        int bits;
+        int value;
+        do {
+            bits = (int) (next() >>> 33);
+            value = bits % size;
+        } while (bits - value + (size - 1) < 0);
+        return value + 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void reset() {
+        key = streamKey(seed, firstGame + resetCount);
+        counter = 0;
+        resetCount++;
+    }
+
+    @Override
+    public int resetCount() {
+        return resetCount;
+    }
+
+    private long next() {
+        counter++;
+        return mix64(key + counter * GOLDEN_GAMMA);
+    }
+
+    // 対局ごとの乱数系列のキー、系列どうしが重ならないよう、シード値と対局番号を混ぜ合わせる
+    private static long streamKey(long seed, long game) {
+        return mix64(mix64(seed) + mix64(game + GOLDEN_GAMMA));
+    }
+
+    // SplittableRandomと同じ、64bitの混合関数（Stafford variant 13）
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
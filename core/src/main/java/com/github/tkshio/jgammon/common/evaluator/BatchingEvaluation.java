@@ -0,0 +1,248 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 並行に進む複数の対局の評価要求をまとめて、一度に評価するクラス
+ *
+ * <p>{@link #wrap(StateEvaluator)}で包んだ評価器を、各対局を別スレッドで実行するプレイヤーに使用する。
+ * 対局中のスレッドからの{@link StateEvaluator#evalAll(List)}は、対局中の全スレッドから評価要求が揃うまで待機し、
+ * 揃った時点で、元の評価器ごとに一つのリストにまとめて評価される。すなわち、各対局は手番ごとに歩調を合わせて進み、
+ * 評価器には対局数分の候補手がまとめて渡される。行列演算で一度に順伝播させる評価器では、これにより演算効率が上がる。
+ *
+ * <p>対局中のスレッドは、{@link StateEvaluator#initialState(Object)}で登録し、
+ * {@link StateEvaluator#won(Object)}、{@link StateEvaluator#lost(Object)}、{@link StateEvaluator#abort()}などで登録を解除する。
+ * 登録されていないスレッド（先読みのために別のスレッドプールで評価する場合など）からの評価要求は、まとめずにそのまま評価する。
+ * 例外などで登録を解除せずにスレッドが対局から離れた場合に備えて、待機時間には上限を設け、
+ * 上限に達した場合はその時点で揃っている評価要求だけをまとめて評価する。
+ *
+ * <p>評価は排他的に行われるので、元の評価器はスレッドセーフでなくてもよい。
+ * 評価値は、まとめずに評価した場合と同じになる。
+ *
+ * @param <STATE> 局面を表すクラス
+ */
+public class BatchingEvaluation<STATE> {
+    private final long maxWaitNanos;
+
+    private final Set<Thread> activeThreads = new HashSet<>();
+    private List<Request> pending = new ArrayList<>();
+
+    private long batches = 0;
+    private long states = 0;
+
+    private BatchingEvaluation(long maxWaitMillis) {
+        if (maxWaitMillis <= 0) {
+            throw new IllegalArgumentException("maxWaitMillis must be positive: " + maxWaitMillis);
+        }
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /**
+     * ファクトリーメソッド
+     *
+     * <p>待機時間の上限を1秒として{@link #create(long)}を呼ぶ
+     *
+     * @param <STATE> 局面を表すクラス
+     * @return 生成されたオブジェクト
+     */
+    public static <STATE> BatchingEvaluation<STATE> create() {
+        return create(1000);
+    }
+
+    /**
+     * ファクトリーメソッド
+     *
+     * @param maxWaitMillis 評価要求が揃うのを待つ時間の上限（ミリ秒）
+     * @param <STATE>       局面を表すクラス
+     * @return 生成されたオブジェクト
+     */
+    public static <STATE> BatchingEvaluation<STATE> create(long maxWaitMillis) {
+        return new BatchingEvaluation<>(maxWaitMillis);
+    }
+
+    /**
+     * 評価要求をまとめて評価するよう、評価器を包む
+     *
+     * <p>同じオブジェクトで包んだ評価器どうしは、歩調を合わせて評価が行われる。
+     *
+     * @param ev 元の評価器
+     * @return 包まれた評価器
+     */
+    public StateEvaluator<STATE> wrap(StateEvaluator<STATE> ev) {
+        return new StateEvaluator<>() {
+            @Override
+            public Eval eval(STATE state) {
+                return evalAll(List.of(state)).get(0);
+            }
+
+            @Override
+            public List<Eval> evalAll(List<STATE> states) {
+                return submit(ev, states);
+            }
+
+            @Override
+            public void initialState(STATE state) {
+                register();
+                ev.initialState(state);
+            }
+
+            @Override
+            public void won(STATE state) {
+                unregister();
+                ev.won(state);
+            }
+
+            @Override
+            public void lost(STATE state) {
+                unregister();
+                ev.lost(state);
+            }
+
+            @Override
+            public void draw(STATE state) {
+                unregister();
+                ev.draw(state);
+            }
+
+            @Override
+            public void abort() {
+                unregister();
+                ev.abort();
+            }
+        };
+    }
+
+    /**
+     * これまでに行った、まとめての評価の回数を返す
+     *
+     * @return 評価の回数
+     */
+    public synchronized long getBatches() {
+        return batches;
+    }
+
+    /**
+     * まとめて評価した局面の総数を返す
+     *
+     * @return 局面数
+     */
+    public synchronized long getStates() {
+        return states;
+    }
+
+    private synchronized void register() {
+        activeThreads.add(Thread.currentThread());
+    }
+
+    private synchronized void unregister() {
+        // 待機中のスレッドが、このスレッドの要求を待っていることがある
+        if (activeThreads.remove(Thread.currentThread()) && isReady()) {
+            flush();
+        }
+    }
+
+    private List<Eval> submit(StateEvaluator<STATE> ev, List<STATE> states) {
+        Request request;
+        synchronized (this) {
+            if (!activeThreads.contains(Thread.currentThread())) {
+                request = null;
+            } else {
+                request = new Request(ev, states);
+                pending.add(request);
+                await(request);
+            }
+        }
+
+        // 対局中でないスレッドからの要求は、まとめずに評価する
+        if (request == null) {
+            return ev.evalAll(states);
+        }
+        if (request.error != null) {
+            throw request.error;
+        }
+        return request.result;
+    }
+
+    // 要求が評価されるまで待機する、synchronizedブロック内から呼ぶ
+    private void await(Request request) {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (!request.isDone()) {
+            long remaining = deadline - System.nanoTime();
+            if (isReady() || remaining <= 0) {
+                flush();
+                break;
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                flush();
+                break;
+            }
+        }
+    }
+
+    // 対局中の全スレッドから評価要求が揃った
+    private boolean isReady() {
+        return !pending.isEmpty() && pending.size() >= activeThreads.size();
+    }
+
+    // 揃っている評価要求を、元の評価器ごとにまとめて評価する、synchronizedブロック内から呼ぶ
+    private void flush() {
+        var requests = pending;
+        pending = new ArrayList<>();
+
+        List<Request> rest = requests;
+        while (!rest.isEmpty()) {
+            var ev = rest.get(0).ev;
+            List<Request> group = new ArrayList<>();
+            List<Request> others = new ArrayList<>();
+            for (Request request : rest) {
+                (request.ev == ev ? group : others).add(request);
+            }
+            evalGroup(ev, group);
+            rest = others;
+        }
+        notifyAll();
+    }
+
+    private void evalGroup(StateEvaluator<STATE> ev, List<Request> group) {
+        List<STATE> batch = new ArrayList<>();
+        group.forEach(request -> batch.addAll(request.states));
+        batches++;
+        states += batch.size();
+
+        try {
+            List<Eval> evals = ev.evalAll(batch);
+            int offset = 0;
+            for (Request request : group) {
+                int size = request.states.size();
+                request.result = new ArrayList<>(evals.subList(offset, offset + size));
+                offset += size;
+            }
+        } catch (RuntimeException e) {
+            group.forEach(request -> request.error = e);
+        }
+    }
+
+    // 1スレッドからの評価要求
+    private class Request {
+        private final StateEvaluator<STATE> ev;
+        private final List<STATE> states;
+        private List<Eval> result = null;
+        private RuntimeException error = null;
+
+        Request(StateEvaluator<STATE> ev, List<STATE> states) {
+            this.ev = ev;
+            this.states = states;
+        }
+
+        boolean isDone() {
+            return result != null || error != null;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * 評価結果をキャッシュする、{@link StateEvaluator}のデコレーター
+ *
+ * <p>局面は、{@code hashFunction}が返す64bitのハッシュ値のみで識別する。
+ * したがってハッシュ値は手番側も区別したものでなければならない（{@code BackgammonState#getHash}はこれを満たす）。
+ * 異なる局面のハッシュ値が衝突した場合は誤った評価値が返るが、64bitであれば実用上無視できる。
+ *
+ * <p>キャッシュは複数のセグメントに分割され、セグメントごとにロックを取るので、並列に評価する
+ * {@link OnePlyPlayer}、{@link TwoPlyPlayer}からも使用できる。保持する件数の上限は固定で、
+ * 上限を超えた分は{@link Eviction}に従って破棄される。
+ *
+ * <p>キャッシュされた{@link Eval}オブジェクトはそのまま再利用されるので、
+ * {@link Eval#markAsChoice()}で学習を行う評価器をラップしてはならない。
+ *
+ * @param <STATE> 局面を表すクラス
+ */
+public class CachedStateEvaluator<STATE> implements StateEvaluator<STATE> {
+    /**
+     * 既定の上限件数
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+
+    private static final int SEGMENTS = 64;
+
+    private final StateEvaluator<STATE> ev;
+    private final ToLongFunction<STATE> hashFunction;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * キャッシュからの破棄の方式
+     */
+    public enum Eviction {
+        /**
+         * 最も長く参照されていないものを破棄する
+         */
+        LRU {
+            @Override
+            Segment createSegment(int capacity) {
+                return new LruSegment(capacity);
+            }
+        },
+        /**
+         * クロック方式（Second Chance）で破棄する。LRUの近似で、参照時に順序の更新を行わない
+         */
+        CLOCK {
+            @Override
+            Segment createSegment(int capacity) {
+                return new ClockSegment(capacity);
+            }
+        };
+
+        abstract Segment createSegment(int capacity);
+    }
+
+    private CachedStateEvaluator(StateEvaluator<STATE> ev,
+                                 ToLongFunction<STATE> hashFunction,
+                                 int maxEntries,
+                                 Eviction eviction) {
+        if (maxEntries < SEGMENTS) {
+            throw new IllegalArgumentException("maxEntries must be at least " + SEGMENTS);
+        }
+        this.ev = ev;
+        this.hashFunction = hashFunction;
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = eviction.createSegment(maxEntries / SEGMENTS);
+        }
+    }
+
+    /**
+     * 既定の上限件数、LRU方式で破棄するキャッシュを生成する
+     *
+     * @param ev           ラップする評価器
+     * @param hashFunction 局面のハッシュ値を返す関数
+     * @param <STATE>      局面を表すクラス
+     * @return 生成されたオブジェクト
+     */
+    public static <STATE> CachedStateEvaluator<STATE> create(StateEvaluator<STATE> ev,
+                                                             ToLongFunction<STATE> hashFunction) {
+        return create(ev, hashFunction, DEFAULT_MAX_ENTRIES, Eviction.LRU);
+    }
+
+    /**
+     * 上限件数と破棄の方式を指定してキャッシュを生成する
+     *
+     * <p>使用するメモリ量は上限件数にほぼ比例し、1件あたりおよそ100バイト＋評価値オブジェクトの大きさとなる。
+     *
+     * @param ev           ラップする評価器
+     * @param hashFunction 局面のハッシュ値を返す関数
+     * @param maxEntries   保持する件数の上限
+     * @param eviction     破棄の方式
+     * @param <STATE>      局面を表すクラス
+     * @return 生成されたオブジェクト
+     */
+    public static <STATE> CachedStateEvaluator<STATE> create(StateEvaluator<STATE> ev,
+                                                             ToLongFunction<STATE> hashFunction,
+                                                             int maxEntries,
+                                                             Eviction eviction) {
+        return new CachedStateEvaluator<>(ev, hashFunction, maxEntries, eviction);
+    }
+
+    @Override
+    public Eval eval(STATE state) {
+        long hash = hashFunction.applyAsLong(state);
+        Segment segment = segmentFor(hash);
+
+        Eval eval;
+        synchronized (segment) {
+            eval = segment.get(hash);
+        }
+        if (eval != null) {
+            hits.increment();
+            return eval;
+        }
+
+        // 評価はロックの外で行う。同じ局面が同時に評価された場合は、後から格納したものが残る
+        misses.increment();
+        eval = ev.eval(state);
+        synchronized (segment) {
+            segment.put(hash, eval);
+        }
+        return eval;
+    }
+
+    @Override
+    public List<Eval> evalAll(List<STATE> states) {
+        Eval[] evals = new Eval[states.size()];
+        long[] hashes = new long[states.size()];
+
+        // キャッシュにないものだけを集めて、まとめて評価する
+        List<Integer> missed = new ArrayList<>();
+        for (int i = 0; i < evals.length; i++) {
+            long hash = hashFunction.applyAsLong(states.get(i));
+            Segment segment = segmentFor(hash);
+            synchronized (segment) {
+                evals[i] = segment.get(hash);
+            }
+            hashes[i] = hash;
+            if (evals[i] == null) {
+                missed.add(i);
+            }
+        }
+        hits.add(evals.length - missed.size());
+        misses.add(missed.size());
+
+        if (!missed.isEmpty()) {
+            List<STATE> missedStates = new ArrayList<>(missed.size());
+            for (int i : missed) {
+                missedStates.add(states.get(i));
+            }
+            List<Eval> evaluated = ev.evalAll(missedStates);
+            for (int j = 0; j < missed.size(); j++) {
+                int i = missed.get(j);
+                evals[i] = evaluated.get(j);
+                Segment segment = segmentFor(hashes[i]);
+                synchronized (segment) {
+                    segment.put(hashes[i], evals[i]);
+                }
+            }
+        }
+        return Arrays.asList(evals);
+    }
+
+    /**
+     * キャッシュから評価値を得られた回数を返す
+     *
+     * @return ヒット数
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * キャッシュになく、評価器で評価を行った回数を返す
+     *
+     * @return ミス数
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 現在保持している件数を返す
+     *
+     * @return 件数
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 保持している評価値をすべて破棄する
+     *
+     * <p>ヒット数・ミス数はリセットされない。
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public void initialState(STATE state) {
+        ev.initialState(state);
+    }
+
+    @Override
+    public void won(STATE state) {
+        ev.won(state);
+    }
+
+    @Override
+    public void abort() {
+        ev.abort();
+    }
+
+    @Override
+    public void lost(STATE state) {
+        ev.lost(state);
+    }
+
+    @Override
+    public void draw(STATE state) {
+        ev.draw(state);
+    }
+
+    private Segment segmentFor(long hash) {
+        // ハッシュ値の偏りに備え、上位ビットを混ぜてから選ぶ
+        long h = hash * 0x9E3779B97F4A7C15L;
+        return segments[(int) (h >>> (64 - Integer.numberOfTrailingZeros(SEGMENTS)))];
+    }
+
+    // セグメントの実装、呼び出し側でロックを取るので、スレッドセーフである必要はない
+    private interface Segment {
+        Eval get(long hash);
+
+        void put(long hash, Eval eval);
+
+        int size();
+
+        void clear();
+    }
+
+    private static class LruSegment implements Segment {
+        // アクセス順に並ぶので、先頭が最も長くアクセスされていないもの
+        private final LinkedHashMap<Long, Eval> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+
+        LruSegment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public Eval get(long hash) {
+            return entries.get(hash);
+        }
+
+        @Override
+        public void put(long hash, Eval eval) {
+            entries.put(hash, eval);
+            if (entries.size() > capacity) {
+                var eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public void clear() {
+            entries.clear();
+        }
+    }
+
+    private static class ClockSegment implements Segment {
+        private final long[] keys;
+        private final Eval[] values;
+        private final boolean[] referenced;
+        private final Map<Long, Integer> slots = new HashMap<>();
+        private int hand;
+
+        ClockSegment(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Eval[capacity];
+            this.referenced = new boolean[capacity];
+        }
+
+        @Override
+        public Eval get(long hash) {
+            Integer slot = slots.get(hash);
+            if (slot == null) {
+                return null;
+            }
+            referenced[slot] = true;
+            return values[slot];
+        }
+
+        @Override
+        public void put(long hash, Eval eval) {
+            Integer slot = slots.get(hash);
+            if (slot != null) {
+                values[slot] = eval;
+                referenced[slot] = true;
+                return;
+            }
+
+            int free;
+            if (slots.size() < keys.length) {
+                free = slots.size();
+            } else {
+                // 参照ビットが立っていれば落として次へ進み、立っていないものを破棄する
+                while (referenced[hand]) {
+                    referenced[hand] = false;
+                    hand = (hand + 1) % keys.length;
+                }
+                free = hand;
+                hand = (hand + 1) % keys.length;
+                slots.remove(keys[free]);
+            }
+            keys[free] = hash;
+            values[free] = eval;
+            referenced[free] = false;
+            slots.put(hash, free);
+        }
+
+        @Override
+        public int size() {
+            return slots.size();
+        }
+
+        @Override
+        public void clear() {
+            slots.clear();
+            Arrays.fill(values, null);
+            Arrays.fill(referenced, false);
+            hand = 0;
+        }
+    }
+}
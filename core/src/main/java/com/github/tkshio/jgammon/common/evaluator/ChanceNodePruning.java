@@ -0,0 +1,359 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import com.github.tkshio.jgammon.common.node.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * 評価値の範囲を利用して、先読みの途中で候補手の評価を打ち切る枝刈りの設定（Star1/Star2）
+ *
+ * <p>評価器の評価値の絶対値が{@code bound}以下であることを前提に、ロール（チャンスノード）ごとの評価値を順に求めながら、
+ * まだ評価していないロールの評価値がとりうる範囲から、候補手の評価値の範囲を求める。
+ * 候補手がそれまでの最善手を上回りえないことが確定した時点で、残りのロールの評価を打ち切る（Star1）。
+ * {@code probing}が真なら、末端の局面を評価する前に各ロールの応手を一つずつ評価して、範囲をあらかじめ狭める（Star2）。
+ *
+ * <p>最善手とその評価値は、枝刈りを行わない場合と変わらない（ただし、評価値が等しい手の間での選択は変わりうる）。
+ * 評価を打ち切った手の評価値は、実際の評価値の上限（最善手の評価値以下）となる。
+ * ただし、最善手と等しい評価値は、打ち切ったかどうかによらず最善手よりわずかに小さい値とするので、
+ * 評価値の最大の手を選べば、打ち切らずに評価した最善手が選ばれる。
+ *
+ * @param <STATE> 局面を表すオブジェクト
+ */
+public class ChanceNodePruning<STATE> {
+    private final double bound;
+    private final Comparator<Node.ChildNodesEntry<STATE>> rollOrder;
+    private final Comparator<STATE> replyOrder;
+    private final boolean probing;
+
+    private ChanceNodePruning(double bound,
+                              Comparator<Node.ChildNodesEntry<STATE>> rollOrder,
+                              Comparator<STATE> replyOrder,
+                              boolean probing) {
+        if (!(bound > 0) || Double.isInfinite(bound)) {
+            throw new IllegalArgumentException("bound must be positive and finite: " + bound);
+        }
+        this.bound = bound;
+        this.rollOrder = rollOrder;
+        this.replyOrder = replyOrder;
+        this.probing = probing;
+    }
+
+    /**
+     * ファクトリーメソッド
+     *
+     * <p>ロールは重みの大きい順に、応手は生成された順に評価し、Star2の先行評価を行う。
+     *
+     * @param bound   評価器の評価値の絶対値の上限
+     * @param <STATE> 局面を表すオブジェクト
+     * @return 生成されたオブジェクト
+     */
+    public static <STATE> ChanceNodePruning<STATE> of(double bound) {
+        return new ChanceNodePruning<>(bound,
+                Comparator.comparingDouble((Node.ChildNodesEntry<STATE> entry) -> entry.getWeight()).reversed(),
+                null, true);
+    }
+
+    /**
+     * ロールを評価する順序を変更したオブジェクトを返す
+     *
+     * <p>評価値の範囲を早く狭められる順に並べるほど、多くの評価を打ち切ることができる。
+     *
+     * @param rollOrder ロール別の子局面のグループの順序
+     * @return 生成されたオブジェクト
+     */
+    public ChanceNodePruning<STATE> withRollOrder(Comparator<Node.ChildNodesEntry<STATE>> rollOrder) {
+        return new ChanceNodePruning<>(bound, rollOrder, replyOrder, probing);
+    }
+
+    /**
+     * 応手を評価する順序を変更したオブジェクトを返す
+     *
+     * <p>相手にとっての好手が先に並ぶほど、Star2の先行評価で範囲を狭めることができる。
+     *
+     * @param replyOrder 応手の局面の順序
+     * @return 生成されたオブジェクト
+     */
+    public ChanceNodePruning<STATE> withReplyOrder(Comparator<STATE> replyOrder) {
+        return new ChanceNodePruning<>(bound, rollOrder, replyOrder, probing);
+    }
+
+    /**
+     * Star2の先行評価を行わない（Star1のみの）オブジェクトを返す
+     *
+     * @return 生成されたオブジェクト
+     */
+    public ChanceNodePruning<STATE> withoutProbing() {
+        return new ChanceNodePruning<>(bound, rollOrder, replyOrder, false);
+    }
+
+    /**
+     * 評価値の絶対値の上限を返す
+     *
+     * @return 評価値の絶対値の上限
+     */
+    public double getBound() {
+        return bound;
+    }
+
+    /**
+     * 候補手を評価する
+     *
+     * <p>候補手を1Plyの評価値の順に並べ、先頭の手を打ち切りなしで評価した後、
+     * その評価値を基準として、残りの手を{@code pool}で並列に評価する。
+     * 基準を固定するので、結果は実行順序によらない。
+     * 残りの手の評価値が基準と等しい場合は、基準よりわずかに小さい値とする。
+     *
+     * @param nodes         候補手
+     * @param children      候補手から、ロール別の子局面のグループを得る関数
+     * @param plies         読みの深さ、自分の手を1とする（2以上）
+     * @param moverEv       手番側の評価器
+     * @param opponentEv    相手側の評価器
+     * @param nodeFactory   3Ply以上の場合に、局面から子局面を生成するノードを得る関数
+     * @param terminalScore 子局面がない（対局が終了している）候補手の評価値を返す関数
+     * @param pool          評価を並列に実行するスレッドプール
+     * @param <T>           ノードの型
+     * @return 評価値の配列、{@code nodes}と同じ順に並ぶ
+     */
+    <T extends Node<STATE>> double[] evalCandidates(List<T> nodes,
+                                                    Function<T, Collection<Node.ChildNodesEntry<STATE>>> children,
+                                                    int plies,
+                                                    StateEvaluator<STATE> moverEv,
+                                                    StateEvaluator<STATE> opponentEv,
+                                                    Function<STATE, ? extends Node<STATE>> nodeFactory,
+                                                    ToDoubleFunction<T> terminalScore,
+                                                    ForkJoinPool pool) {
+        if (nodes.isEmpty()) {
+            return new double[0];
+        }
+
+        // 1Plyの評価値の降順に並べる
+        List<Eval> onePly = moverEv.evalAll(nodes.stream()
+                .map(Node::getState)
+                .collect(Collectors.toList()));
+        Integer[] order = new Integer[nodes.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> onePly.get(i).getScore()).reversed());
+
+        double[] scores = new double[nodes.size()];
+        T first = nodes.get(order[0]);
+        double alpha = evalCandidate(first, children, plies, moverEv, opponentEv, nodeFactory, terminalScore,
+                Double.NEGATIVE_INFINITY);
+        scores[order[0]] = alpha;
+
+        double[] rest = ParallelEvaluation.mapToDouble(pool, nodes.size() - 1,
+                j -> evalCandidate(nodes.get(order[j + 1]), children, plies, moverEv, opponentEv, nodeFactory,
+                        terminalScore, alpha));
+        for (int j = 0; j < rest.length; j++) {
+            // 打ち切った手の上限が基準と等しい場合、打ち切らずに評価した先頭の手より優先されないようにする
+            scores[order[j + 1]] = (rest[j] == alpha) ? Math.nextDown(alpha) : rest[j];
+        }
+        return scores;
+    }
+
+    private <T extends Node<STATE>> double evalCandidate(T node,
+                                                         Function<T, Collection<Node.ChildNodesEntry<STATE>>> children,
+                                                         int plies,
+                                                         StateEvaluator<STATE> moverEv,
+                                                         StateEvaluator<STATE> opponentEv,
+                                                         Function<STATE, ? extends Node<STATE>> nodeFactory,
+                                                         ToDoubleFunction<T> terminalScore,
+                                                         double alpha) {
+        var rolls = listupRolls(children.apply(node));
+        if (isTerminal(rolls)) {
+            return terminalScore.applyAsDouble(node);
+        }
+        return evalState(node.getState(), rolls, plies, moverEv, opponentEv, nodeFactory,
+                alpha, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * 手を指した直後の局面を、指した側の観点で、範囲を指定して評価する
+     *
+     * @param state       評価対象の局面
+     * @param rolls       評価対象の局面の、ロール別の応手
+     * @param plies       残りの深さ（2以上）
+     * @param moverEv     指した側の評価器
+     * @param opponentEv  相手側の評価器
+     * @param nodeFactory 局面から、子局面を生成するノードを得る関数
+     * @param alpha       範囲の下限
+     * @param beta        範囲の上限
+     * @return 評価値、alpha以下ならその上限、beta以上ならその下限
+     */
+    private double evalState(STATE state,
+                             List<RollReplies<STATE>> rolls,
+                             int plies,
+                             StateEvaluator<STATE> moverEv,
+                             StateEvaluator<STATE> opponentEv,
+                             Function<STATE, ? extends Node<STATE>> nodeFactory,
+                             double alpha, double beta) {
+        if (isTerminal(rolls)) {
+            // 次局面がない＝すでに対局が終了しているので、その局面をそのまま評価する
+            return moverEv.eval(state).getScore();
+        }
+        if (alpha >= bound) {
+            return bound;
+        }
+        if (beta <= -bound) {
+            return -bound;
+        }
+
+        int n = rolls.size();
+        double[] weights = new double[n];
+        double wSum = 0;
+        for (int i = 0; i < n; i++) {
+            weights[i] = rolls.get(i).weight;
+            wSum += weights[i];
+        }
+
+        // 各ロールでの、相手の最善手の評価値（相手の観点）の下限
+        double[] lower = new double[n];
+        Arrays.fill(lower, -bound);
+        boolean probed = probing && plies == 2;
+        if (probed) {
+            // 末端の応手を一つずつ評価しておけば、最善手の評価値はそれ以上になる（Star2）
+            List<Eval> probes = opponentEv.evalAll(rolls.stream()
+                    .map(roll -> roll.replies.get(0).getState())
+                    .collect(Collectors.toList()));
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                lower[i] = probes.get(i).getScore();
+                sum += lower[i] * weights[i];
+            }
+            double upper = -sum / wSum;
+            if (upper <= alpha) {
+                return upper;
+            }
+        }
+
+        // 未評価のロールについての、重みづけした評価値の下限・上限の和
+        double[] restLower = new double[n + 1];
+        double[] restUpper = new double[n + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            restLower[i] = restLower[i + 1] + lower[i] * weights[i];
+            restUpper[i] = restUpper[i + 1] + bound * weights[i];
+        }
+
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            double weight = weights[i];
+
+            // 相手の評価値がfailLow以上なら、指した側の評価値はalpha以下に確定する
+            double failLow = (-alpha * wSum - sum - restLower[i + 1]) / weight;
+            // 相手の評価値がfailHigh以下なら、指した側の評価値はbeta以上に確定する
+            double failHigh = (-beta * wSum - sum - restUpper[i + 1]) / weight;
+
+            double best = evalReplies(rolls.get(i).replies, probed, lower[i], plies, moverEv, opponentEv, nodeFactory, failHigh, failLow);
+            if (best >= failLow) {
+                return -(sum + best * weight + restLower[i + 1]) / wSum;
+            }
+            if (best <= failHigh) {
+                return -(sum + best * weight + restUpper[i + 1]) / wSum;
+            }
+            sum += best * weight;
+        }
+
+        // 相手方の手番として評価しているので、正負反転させて自分の評価値とする
+        return -sum / wSum;
+    }
+
+    /**
+     * あるロールに対する相手の手を評価し、相手にとっての最善手の評価値を返す
+     *
+     * @param replies    評価する順に並べた応手
+     * @param probed     先頭の応手を評価済みなら真
+     * @param probe      先頭の応手の評価値
+     * @param plies      指した側から見た残りの深さ
+     * @param moverEv    指した側の評価器
+     * @param opponentEv 相手側の評価器
+     * @param a          範囲の下限（相手の観点）
+     * @param b          範囲の上限（相手の観点）
+     * @return 相手の観点での評価値、b以上ならその下限
+     */
+    private double evalReplies(List<Node<STATE>> replies, boolean probed, double probe, int plies,
+                               StateEvaluator<STATE> moverEv,
+                               StateEvaluator<STATE> opponentEv,
+                               Function<STATE, ? extends Node<STATE>> nodeFactory,
+                               double a, double b) {
+        double best = Double.NEGATIVE_INFINITY;
+        int from = 0;
+        if (probed) {
+            best = probe;
+            from = 1;
+            if (best >= b) {
+                return best;
+            }
+        }
+
+        if (plies == 2) {
+            // 末端の局面は、まとめて評価する
+            List<STATE> states = replies.subList(from, replies.size()).stream()
+                    .map(Node::getState)
+                    .collect(Collectors.toList());
+            for (Eval eval : opponentEv.evalAll(states)) {
+                best = Math.max(best, eval.getScore());
+            }
+            return best;
+        }
+
+        for (Node<STATE> reply : replies.subList(from, replies.size())) {
+            STATE state = reply.getState();
+            double value = evalState(state, listupRolls(nodeFactory.apply(state).getChildNodesEntries()), plies - 1,
+                    opponentEv, moverEv, nodeFactory, Math.max(a, best), b);
+            best = Math.max(best, value);
+            if (best >= b) {
+                return best;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * ロール別の子局面を評価する順に並べ、リストとして取り出す
+     *
+     * <p>必要になった時点で子局面を生成するノードでは、参照のたびに生成し直されるので、ここで一度だけ生成する。
+     *
+     * @param childNodesEntries ロール別の子局面のグループ
+     * @return ロール別の応手
+     */
+    private List<RollReplies<STATE>> listupRolls(Collection<Node.ChildNodesEntry<STATE>> childNodesEntries) {
+        List<Node.ChildNodesEntry<STATE>> entries = new ArrayList<>(childNodesEntries);
+        if (rollOrder != null) {
+            entries.sort(rollOrder);
+        }
+
+        List<RollReplies<STATE>> rolls = new ArrayList<>(entries.size());
+        for (var entry : entries) {
+            List<Node<STATE>> replies = new ArrayList<>(entry.getNodes());
+            if (replyOrder != null) {
+                replies.sort(Comparator.comparing(Node::getState, replyOrder));
+            }
+            rolls.add(new RollReplies<>(entry.getWeight(), replies));
+        }
+        return rolls;
+    }
+
+    private static <STATE> boolean isTerminal(List<RollReplies<STATE>> rolls) {
+        return rolls.isEmpty() || rolls.stream().anyMatch(roll -> roll.replies.isEmpty());
+    }
+
+    // あるロールの重みと、評価する順に並べた応手
+    private static class RollReplies<STATE> {
+        private final double weight;
+        private final List<Node<STATE>> replies;
+
+        RollReplies(double weight, List<Node<STATE>> replies) {
+            this.weight = weight;
+            this.replies = replies;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import com.github.tkshio.jgammon.common.context.GameContextHandler;
+import com.github.tkshio.jgammon.common.director.Player;
+import com.github.tkshio.jgammon.common.node.Node;
+import com.github.tkshio.jgammon.common.utils.SGTuple;
+import lombok.Builder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 持ち時間・評価局面数の範囲内で、読みを順に深めていくプレイヤー
+ *
+ * <p>まず1Plyで全候補手を評価し、以降は直前の深さでの評価値で候補手を絞り込みながら、
+ * {@code maxDepth}まで1段ずつ深く読む（評価は{@link NPlyPlayer}と同じ）。
+ * 途中で{@code timeLimit}または{@code evaluationLimit}を超えた場合は、その深さの評価を打ち切り、
+ * 最後に完了した深さで最善だった手を選ぶ。1Plyの評価は制限によらず必ず行う。
+ *
+ * <p>子局面は{@code nodeFactory}が返すノードから生成するので、{@link NPlyPlayer}と同様、
+ * 1Plyの設定のDirectorと組み合わせて使用する。
+ *
+ * @param <STATE> 局面を表すオブジェクト
+ */
+@Builder
+public class IterativeDeepeningPlayer<STATE> implements Player<STATE> {
+    @Builder.Default
+    private final String name = "NONAME";
+
+    public static class IterativeDeepeningPlayerBuilder<STATE> implements PlayerBuilder<STATE> {
+
+    }
+
+    private final SGTuple<StateEvaluator<STATE>> evs;
+
+    /**
+     * 局面から、子局面を生成するノードを得る関数
+     */
+    private final Function<STATE, ? extends Node<STATE>> nodeFactory;
+
+    /**
+     * 読みの深さの上限、自分の手を1とする
+     */
+    @Builder.Default
+    private final int maxDepth = 3;
+
+    /**
+     * 1手あたりの持ち時間、nullなら制限しない
+     */
+    private final Duration timeLimit;
+
+    /**
+     * 1手あたりに評価する局面数の上限、0なら制限しない
+     */
+    @Builder.Default
+    private final long evaluationLimit = 0;
+
+    /**
+     * 次の深さで読む際に、直前の深さでの評価値の上位から必ず残す件数
+     */
+    @Builder.Default
+    private final int keep = 8;
+
+    /**
+     * 次の深さで読む際に、直前の深さでの最善手との差がこの値以内なら、件数によらず残す
+     */
+    @Builder.Default
+    private final double margin = 0.16;
+
+    /**
+     * 評価を並列に実行するスレッドプール、既定値は共通プール
+     */
+    @Builder.Default
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * ファクトリーメソッド
+     *
+     * @return 生成されたNodeEvaluatorのSGペア
+     */
+    public SGTuple<NodesEvaluator<STATE>> createEvaluators() {
+        if (maxDepth < 1) {
+            throw new IllegalStateException("maxDepth must be positive: " + maxDepth);
+        }
+        return SGTuple.of(
+                createEvaluator(evs.sente(), evs.gote()),
+                createEvaluator(evs.gote(), evs.sente()));
+    }
+
+    private NodesEvaluator<STATE> createEvaluator(StateEvaluator<STATE> ev, StateEvaluator<STATE> opponentEv) {
+        return new NodesEvaluator<>() {
+            @Override
+            public <T extends Node<STATE>>
+            EvaluatedNode<T> evaluate(T stateNode,
+                                      Collection<T> candidates,
+                                      GameContextHandler.TebanContextHandler<STATE> contextHandler) {
+                var budget = new Budget();
+                List<T> nodes = new ArrayList<>(candidates);
+
+                // 1Plyは制限によらず完了させる
+                Map<T, Eval> evals = new IdentityHashMap<>();
+                {
+                    List<Eval> list = ev.evalAll(nodes.stream()
+                            .map(Node::getState)
+                            .collect(Collectors.toList()));
+                    for (int i = 0; i < nodes.size(); i++) {
+                        evals.put(nodes.get(i), list.get(i));
+                    }
+                }
+                int completedDepth = 1;
+
+                for (int depth = 2; depth <= maxDepth && !budget.isExhausted(); depth++) {
+                    // 直前の深さでの評価値で絞り込む
+                    Map<T, Eval> prevEvals = evals;
+                    List<T> survivors = MoveFilter.of(depth - 1, keep, margin)
+                            .select(nodes, node -> prevEvals.get(node).getScore(), pool);
+                    if (survivors.size() == 1) {
+                        // 候補が一つに絞られたなら、深く読んでも選択は変わらない
+                        evals = Map.of(survivors.get(0), prevEvals.get(survivors.get(0)));
+                        break;
+                    }
+
+                    var deeper = evalAtDepth(stateNode, survivors, depth,
+                            budget.wrap(ev), budget.wrap(opponentEv));
+                    if (deeper == null) {
+                        break;
+                    }
+                    nodes = survivors;
+                    evals = deeper;
+                    completedDepth = depth;
+                }
+
+                Map<T, Eval> result = evals;
+                EvaluatedNode<T> evaluatedNode = nodes.stream()
+                        .filter(result::containsKey)
+                        .map(node -> {
+                            var eval = result.get(node);
+                            contextHandler.evaluateMove(node.getState(), eval);
+                            return new EvaluatedNode<>(node, eval);
+                        })
+
+                        // 最大値を選ぶのはOnePlyPlayerと同じ
+                        .max(Comparator.comparing(
+                                EvaluatedNode::getEval))
+                        .orElseThrow(IllegalStateException::new);
+
+                // 評価器の評価値をそのまま使用した場合のみ、フィードバックを行う
+                if (completedDepth == 1) {
+                    evaluatedNode.getEval().markAsChoice();
+                }
+                return evaluatedNode;
+            }
+
+            @Override
+            public void initialState(STATE initialState) {
+                ev.initialState(initialState);
+            }
+
+            @Override
+            public String getLabel() {
+                return name;
+            }
+
+            @Override
+            public void won(STATE state) {
+                ev.won(state);
+            }
+
+            @Override
+            public void lost(STATE state) {
+                ev.lost(state);
+            }
+
+            @Override
+            public void draw(STATE state) {
+                ev.draw(state);
+            }
+
+            @Override
+            public void abort() {
+                ev.abort();
+            }
+        };
+    }
+
+    /**
+     * 指定の深さで候補手を評価する
+     *
+     * @return 候補手ごとの評価値、制限を超えて打ち切った場合はnull
+     */
+    private <T extends Node<STATE>> Map<T, Eval> evalAtDepth(T stateNode,
+                                                             List<T> nodes,
+                                                             int depth,
+                                                             StateEvaluator<STATE> ev,
+                                                             StateEvaluator<STATE> opponentEv) {
+        var nodesEvaluator = NPlyPlayer.<STATE>builder()
+                .evs(SGTuple.of(ev, opponentEv))
+                .depth(depth)
+                .nodeFactory(nodeFactory)
+                .pool(pool)
+                .build()
+                .createEvaluators()
+                .sente();
+
+        // 評価値は、手を選ぶ際にContextHandlerに通知されるものを集める
+        Map<STATE, Eval> evalsByState = new IdentityHashMap<>();
+        try {
+            nodesEvaluator.evaluate(stateNode, nodes, new GameContextHandler.TebanContextHandler<>() {
+                @Override
+                public void evaluateMove(STATE state, Eval eval) {
+                    evalsByState.put(state, eval);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 並列に評価している場合は、別の例外に包まれて届くことがある
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof BudgetExhaustedException) {
+                    return null;
+                }
+            }
+            throw e;
+        }
+
+        Map<T, Eval> evals = new IdentityHashMap<>();
+        for (T node : nodes) {
+            evals.put(node, evalsByState.get(node.getState()));
+        }
+        return evals;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 1手あたりの持ち時間・評価局面数を管理する
+     */
+    private class Budget {
+        // 持ち時間の指定がなければ、期限は設けない（deadlineは使用しない）
+        private final boolean timed = timeLimit != null;
+        private final long deadline = timed ? System.nanoTime() + timeLimit.toNanos() : 0;
+        private final AtomicLong evaluations = new AtomicLong();
+
+        boolean isExhausted() {
+            return (timed && System.nanoTime() - deadline > 0)
+                    || (evaluationLimit > 0 && evaluations.get() >= evaluationLimit);
+        }
+
+        // 評価のたびに制限を確認し、超えていれば例外で評価を打ち切る評価器を返す
+        StateEvaluator<STATE> wrap(StateEvaluator<STATE> ev) {
+            return new StateEvaluator<>() {
+                @Override
+                public Eval eval(STATE state) {
+                    consume(1);
+                    return ev.eval(state);
+                }
+
+                @Override
+                public List<Eval> evalAll(List<STATE> states) {
+                    consume(states.size());
+                    return ev.evalAll(states);
+                }
+            };
+        }
+
+        private void consume(int n) {
+            if (isExhausted()) {
+                throw new BudgetExhaustedException();
+            }
+            evaluations.addAndGet(n);
+        }
+    }
+
+    /**
+     * 制限を超えたため、評価を打ち切ることを示す例外
+     */
+    private static class BudgetExhaustedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BudgetExhaustedException() {
+            super(null, null, false, false);
+        }
+    }
+}
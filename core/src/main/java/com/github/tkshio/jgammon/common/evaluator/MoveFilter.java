@@ -0,0 +1,132 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 浅い読みで候補手を絞り込む、先読みの前段のフィルター
+ *
+ * <p>候補手を指定の深さで評価し、評価値の上位{@code keep}件と、最善手との差が{@code margin}以内の手だけを残す。
+ * {@link NPlyPlayer}に複数段を設定すると、順に適用した後、残った手だけを本来の深さで評価する。
+ */
+public class MoveFilter {
+    private final int depth;
+    private final int keep;
+    private final double margin;
+
+    private MoveFilter(int depth, int keep, double margin) {
+        if (depth < 1 || keep < 1 || margin < 0) {
+            throw new IllegalArgumentException(
+                    "depth=" + depth + ", keep=" + keep + ", margin=" + margin);
+        }
+        this.depth = depth;
+        this.keep = keep;
+        this.margin = margin;
+    }
+
+    /**
+     * ファクトリーメソッド
+     *
+     * @param depth  候補手の評価に使う読みの深さ、1なら評価器の評価値をそのまま使う
+     * @param keep   評価値の上位から、必ず残す件数
+     * @param margin 最善手との評価値の差がこの値以内なら、件数によらず残す
+     * @return 生成されたオブジェクト
+     */
+    public static MoveFilter of(int depth, int keep, double margin) {
+        return new MoveFilter(depth, keep, margin);
+    }
+
+    /**
+     * 候補手を評価し、残す手を選ぶ
+     *
+     * <p>候補手の評価は、共通プール（{@link ForkJoinPool#commonPool()}）で並列に行う。
+     * 候補手が{@code keep}件以下なら、評価せずにそのままの順で返す。
+     *
+     * @param candidates 候補手
+     * @param scorer     候補手の評価値を返す関数、{@link #getDepth()}の深さでの評価が期待される
+     * @param <T>        候補手の型
+     * @return 残された候補手、評価した場合は評価値の降順に並ぶ
+     */
+    public <T> List<T> select(Collection<T> candidates, ToDoubleFunction<T> scorer) {
+        return select(candidates, scorer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 指定のスレッドプールで候補手を評価し、残す手を選ぶ
+     *
+     * <p>候補手が{@code keep}件以下なら、評価せずにそのままの順で返す。
+     *
+     * @param candidates 候補手
+     * @param scorer     候補手の評価値を返す関数、{@link #getDepth()}の深さでの評価が期待される
+     * @param pool       評価を並列に実行するスレッドプール
+     * @param <T>        候補手の型
+     * @return 残された候補手、評価した場合は評価値の降順に並ぶ
+     */
+    public <T> List<T> select(Collection<T> candidates, ToDoubleFunction<T> scorer, ForkJoinPool pool) {
+        if (candidates.size() <= keep) {
+            // すべて残るので、評価するまでもない
+            return new ArrayList<>(candidates);
+        }
+
+        List<T> list = new ArrayList<>(candidates);
+        double[] scores = ParallelEvaluation.mapToDouble(pool, list.size(),
+                i -> scorer.applyAsDouble(list.get(i)));
+
+        List<Scored<T>> scored = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            scored.add(new Scored<>(list.get(i), scores[i]));
+        }
+        scored.sort(Comparator.comparingDouble((Scored<T> s) -> s.score).reversed());
+
+        double threshold = scored.get(0).score - margin;
+        List<T> selected = new ArrayList<>();
+        for (int i = 0; i < scored.size(); i++) {
+            var s = scored.get(i);
+            if (i < keep || s.score >= threshold) {
+                selected.add(s.candidate);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 候補手の評価に使う読みの深さを返す
+     *
+     * @return 読みの深さ
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 必ず残す件数を返す
+     *
+     * @return 件数
+     */
+    public int getKeep() {
+        return keep;
+    }
+
+    /**
+     * 件数によらず残す、最善手との評価値の差を返す
+     *
+     * @return 評価値の差
+     */
+    public double getMargin() {
+        return margin;
+    }
+
+    private static class Scored<T> {
+        private final T candidate;
+        private final double score;
+
+        Scored(T candidate, double score) {
+            this.candidate = candidate;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import com.github.tkshio.jgammon.common.context.GameContextHandler;
+import com.github.tkshio.jgammon.common.director.Player;
+import com.github.tkshio.jgammon.common.node.Node;
+import com.github.tkshio.jgammon.common.utils.SGTuple;
+import lombok.Builder;
+import lombok.Singular;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 任意の深さまで読むプレイヤー
+ *
+ * <p>自分の手を適用した後の局面から、ロール（チャンスノード）ごとの期待値と、
+ * 各手番での最善手の選択を交互に繰り返して評価する（expectimax）。
+ * depthが1なら{@link OnePlyPlayer}、2なら{@link TwoPlyPlayer}と同じ評価になる。
+ * depthが2以上なら、{@link TwoPlyPlayer}と同様に、対局が終了する候補手は正の無限大と評価する
+ * （読みの途中で対局が終了した局面は、評価器で評価する）。
+ *
+ * <p>子局面はDirectorが用意したツリーを使わず、{@code nodeFactory}が返すノードから必要になった時点で生成する。
+ * したがって、あらかじめ先読みを行わない1Plyの設定のDirectorと組み合わせて使用する。
+ *
+ * <p>{@link MoveFilter}が設定されていれば、候補手を順に絞り込んでから、残った手だけを{@code depth}の深さで評価する。
+ * 深さ1のフィルターでは、候補手を評価器でまとめて評価する。
+ * {@link ChanceNodePruning}が設定されていれば、最善手になりえないことが確定した候補手の評価を途中で打ち切る。
+ *
+ * @param <STATE> 局面を表すオブジェクト
+ */
+@Builder
+public class NPlyPlayer<STATE> implements Player<STATE> {
+    @Builder.Default
+    private final String name = "NONAME";
+
+    public static class NPlyPlayerBuilder<STATE> implements PlayerBuilder<STATE> {
+
+    }
+
+    private final SGTuple<StateEvaluator<STATE>> evs;
+
+    /**
+     * 読みの深さ、自分の手を1とする
+     */
+    @Builder.Default
+    private final int depth = 3;
+
+    /**
+     * 局面から、子局面を生成するノードを得る関数
+     */
+    private final Function<STATE, ? extends Node<STATE>> nodeFactory;
+
+    /**
+     * 候補手を絞り込むフィルター、設定順に適用される
+     */
+    @Singular
+    private final List<MoveFilter> filters;
+
+    /**
+     * 候補手の評価を打ち切る枝刈りの設定、nullなら枝刈りを行わない
+     */
+    private final ChanceNodePruning<STATE> pruning;
+
+    /**
+     * 評価を並列に実行するスレッドプール、既定値は共通プール
+     */
+    @Builder.Default
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * ファクトリーメソッド
+     *
+     * @return 生成されたNodeEvaluatorのSGペア
+     */
+    public SGTuple<NodesEvaluator<STATE>> createEvaluators() {
+        if (depth < 1) {
+            throw new IllegalStateException("depth must be positive: " + depth);
+        }
+        return SGTuple.of(
+                createEvaluator(evs.sente(), evs.gote()),
+                createEvaluator(evs.gote(), evs.sente()));
+    }
+
+    private NodesEvaluator<STATE> createEvaluator(StateEvaluator<STATE> ev, StateEvaluator<STATE> opponentEv) {
+        return new NodesEvaluator<>() {
+            @Override
+            public <T extends Node<STATE>>
+            EvaluatedNode<T> evaluate(T stateNode,
+                                      Collection<T> candidates,
+                                      GameContextHandler.TebanContextHandler<STATE> contextHandler) {
+
+                // 浅い読みで候補手を絞り込む
+                Collection<T> survivors = candidates;
+                for (MoveFilter filter : filters) {
+                    ToDoubleFunction<T> scorer;
+                    if (filter.getDepth() == 1 && survivors.size() > filter.getKeep()) {
+                        // 評価器の評価値をそのまま使うなら、候補手をまとめて評価しておく（すべて残る場合は評価しない）
+                        Map<T, Eval> onePly = evalOnePly(survivors, ev);
+                        scorer = node -> onePly.get(node).getScore();
+                    } else {
+                        scorer = node -> evalCandidate(node.getState(), filter.getDepth(), ev, opponentEv);
+                    }
+                    survivors = filter.select(survivors, scorer, pool);
+                }
+
+                List<T> nodes = new ArrayList<>(survivors);
+                List<Eval> evals;
+                if (depth == 1) {
+                    evals = ev.evalAll(nodes.stream()
+                            .map(Node::getState)
+                            .collect(Collectors.toList()));
+                } else if (pruning != null) {
+                    evals = evalCandidatesWithPruning(nodes, ev, opponentEv);
+                } else {
+                    evals = evalCandidates(nodes, ev, opponentEv);
+                }
+
+                EvaluatedNode<T> evaluatedNode = IntStream.range(0, nodes.size())
+                        .mapToObj(i -> {
+                                    var node = nodes.get(i);
+                                    var eval = evals.get(i);
+                                    contextHandler.evaluateMove(node.getState(), eval);
+                                    return new EvaluatedNode<>(node, eval);
+                                }
+                        )
+
+                        // 最大値を選ぶのはOnePlyPlayerと同じ
+                        .max(Comparator.comparing(
+                                EvaluatedNode::getEval))
+                        .orElseThrow(IllegalStateException::new);
+
+                // 評価器の評価値をそのまま使用した場合のみ、フィードバックを行う
+                if (depth == 1) {
+                    evaluatedNode.getEval().markAsChoice();
+                }
+                return evaluatedNode;
+            }
+
+            @Override
+            public void initialState(STATE initialState) {
+                ev.initialState(initialState);
+            }
+
+            @Override
+            public String getLabel() {
+                return name;
+            }
+
+            @Override
+            public void won(STATE state) {
+                ev.won(state);
+            }
+
+            @Override
+            public void lost(STATE state) {
+                ev.lost(state);
+            }
+
+            @Override
+            public void draw(STATE state) {
+                ev.draw(state);
+            }
+
+            @Override
+            public void abort() {
+                ev.abort();
+            }
+        };
+    }
+
+    /**
+     * 候補手を、評価器でまとめて評価する
+     *
+     * @param nodes 候補手
+     * @param ev    手番側の評価器
+     * @param <T>   ノードの型
+     * @return 候補手から評価値へのマップ
+     */
+    private <T extends Node<STATE>> Map<T, Eval> evalOnePly(Collection<T> nodes, StateEvaluator<STATE> ev) {
+        List<T> list = new ArrayList<>(nodes);
+        List<Eval> evals = ev.evalAll(list.stream()
+                .map(Node::getState)
+                .collect(Collectors.toList()));
+        Map<T, Eval> map = new IdentityHashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            map.put(list.get(i), evals.get(i));
+        }
+        return map;
+    }
+
+    /**
+     * 候補手を評価する
+     *
+     * <p>候補手×ロールの組をそれぞれ1つのタスクとして並べ、{@code pool}で並列に評価した上で、
+     * 候補手ごとにロール順に集計する。
+     *
+     * @param nodes      候補手
+     * @param ev         手番側の評価器
+     * @param opponentEv 相手側の評価器
+     * @param <T>        ノードの型
+     * @return 評価値のリスト、{@code nodes}と同じ順に並ぶ
+     */
+    private <T extends Node<STATE>> List<Eval> evalCandidates(List<T> nodes,
+                                                              StateEvaluator<STATE> ev,
+                                                              StateEvaluator<STATE> opponentEv) {
+        List<Node.ChildNodesEntry<STATE>> entries = new ArrayList<>();
+        int[] offsets = new int[nodes.size() + 1];
+        for (int i = 0; i < nodes.size(); i++) {
+            entries.addAll(nodeFactory.apply(nodes.get(i).getState()).getChildNodesEntries());
+            offsets[i + 1] = entries.size();
+        }
+        double[] bests = ParallelEvaluation.mapToDouble(pool, entries.size(),
+                j -> evalReplies(entries.get(j), depth, ev, opponentEv));
+
+        List<Eval> evals = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            double score = sumUp(entries, bests, offsets[i], offsets[i + 1]);
+            evals.add(() -> score);
+        }
+        return evals;
+    }
+
+    /**
+     * 枝刈りを行いながら候補手を評価する
+     *
+     * @param nodes      候補手
+     * @param ev         手番側の評価器
+     * @param opponentEv 相手側の評価器
+     * @param <T>        ノードの型
+     * @return 評価値のリスト、{@code nodes}と同じ順に並ぶ、打ち切った手の評価値は実際の評価値の上限
+     */
+    private <T extends Node<STATE>> List<Eval> evalCandidatesWithPruning(List<T> nodes,
+                                                                         StateEvaluator<STATE> ev,
+                                                                         StateEvaluator<STATE> opponentEv) {
+        double[] scores = pruning.evalCandidates(nodes,
+                node -> nodeFactory.apply(node.getState()).getChildNodesEntries(),
+                depth, ev, opponentEv, nodeFactory,
+                // 次局面がない＝この手で対局が終了する
+                node -> Double.POSITIVE_INFINITY,
+                pool);
+
+        List<Eval> evals = new ArrayList<>(nodes.size());
+        for (double score : scores) {
+            evals.add(() -> score);
+        }
+        return evals;
+    }
+
+    /**
+     * 候補手を、指した側の観点で評価する
+     *
+     * <p>{@link #evalState}と同じだが、先読みする場合、対局が終了する手は正の無限大と評価する。
+     *
+     * @param state      評価対象の局面
+     * @param plies      読みの深さ
+     * @param moverEv    指した側の評価器
+     * @param opponentEv 相手側の評価器
+     * @return 評価値
+     */
+    private double evalCandidate(STATE state, int plies,
+                                 StateEvaluator<STATE> moverEv,
+                                 StateEvaluator<STATE> opponentEv) {
+        if (plies == 1) {
+            return moverEv.eval(state).getScore();
+        }
+
+        // 次局面がない＝この手で対局が終了する
+        double score = evalRolls(state, plies, moverEv, opponentEv);
+        return Double.isNaN(score) ? Double.POSITIVE_INFINITY : score;
+    }
+
+    /**
+     * 手を指した直後の局面を、指した側の観点で評価する
+     *
+     * @param state      評価対象の局面
+     * @param plies      残りの深さ
+     * @param moverEv    指した側の評価器
+     * @param opponentEv 相手側の評価器
+     * @return 評価値
+     */
+    private double evalState(STATE state, int plies,
+                             StateEvaluator<STATE> moverEv,
+                             StateEvaluator<STATE> opponentEv) {
+        if (plies == 1) {
+            return moverEv.eval(state).getScore();
+        }
+
+        double score = evalRolls(state, plies, moverEv, opponentEv);
+        if (Double.isNaN(score)) {
+            // 次局面がない＝すでに対局が終了しているので、その局面をそのまま評価する
+            return moverEv.eval(state).getScore();
+        }
+        return score;
+    }
+
+    /**
+     * ロールごとの相手の最善手の評価値を出現率で重みづけして平均し、指した側の評価値とする
+     *
+     * <p>子局面は、ロールごとに一度だけ生成する。
+     *
+     * @param state      評価対象の局面
+     * @param plies      残りの深さ（2以上）
+     * @param moverEv    指した側の評価器
+     * @param opponentEv 相手側の評価器
+     * @return 評価値、子局面がない場合はNaN
+     */
+    private double evalRolls(STATE state, int plies,
+                             StateEvaluator<STATE> moverEv,
+                             StateEvaluator<STATE> opponentEv) {
+        double sum = 0;
+        double wSum = 0;
+        for (var childNodesEntry : nodeFactory.apply(state).getChildNodesEntries()) {
+            double best = evalReplies(childNodesEntry, plies, moverEv, opponentEv);
+            if (Double.isNaN(best)) {
+                // 対局が終了した局面では、どのロールにも子局面がない
+                return Double.NaN;
+            }
+
+            // ロールの出現率に応じて重みづけ
+            double weight = childNodesEntry.getWeight();
+            sum += best * weight;
+            wSum += weight;
+        }
+
+        if (wSum == 0) {
+            return Double.NaN;
+        }
+
+        // 相手方の手番として評価しているので、正負反転させて自分の評価値とする
+        return -sum / wSum;
+    }
+
+    /**
+     * あるロールに対する相手の手を評価し、相手にとっての最善手の評価値を返す
+     *
+     * @param childNodesEntry あるロールに対する子局面のグループ
+     * @param plies           指した側から見た残りの深さ
+     * @param moverEv         指した側の評価器
+     * @param opponentEv      相手側の評価器
+     * @return 相手の観点での評価値、子局面がない場合はNaN
+     */
+    private double evalReplies(Node.ChildNodesEntry<STATE> childNodesEntry, int plies,
+                               StateEvaluator<STATE> moverEv,
+                               StateEvaluator<STATE> opponentEv) {
+        var nodes = childNodesEntry.getNodes();
+        if (nodes.isEmpty()) {
+            return Double.NaN;
+        }
+
+        // 相手にとって最善手を選ぶ
+        double best = Double.NEGATIVE_INFINITY;
+        if (plies == 2) {
+            // 末端の局面は、まとめて評価する
+            List<STATE> states = nodes.stream()
+                    .map(Node::getState)
+                    .collect(Collectors.toList());
+            for (Eval eval : opponentEv.evalAll(states)) {
+                best = Math.max(best, eval.getScore());
+            }
+        } else {
+            for (Node<STATE> node : nodes) {
+                best = Math.max(best, evalState(node.getState(), plies - 1, opponentEv, moverEv));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 並列に評価したロールごとの相手の評価値を出現率で重みづけして平均し、指した側の評価値とする
+     *
+     * <p>{@link #evalState}と同じ集計を、実行順序によらず同じ値になるよう逐次的に行う。
+     * 子局面がない（この手で対局が終了する）場合は、正の無限大を返す。
+     *
+     * @param entries ロール別に分けられた子局面のリスト
+     * @param bests   entriesに対応する、相手の最善手の評価値
+     * @param from    集計範囲の先頭（含む）
+     * @param to      集計範囲の末尾（含まない）
+     * @return 評価値
+     */
+    private double sumUp(List<Node.ChildNodesEntry<STATE>> entries, double[] bests,
+                         int from, int to) {
+        double sum = 0;
+        double wSum = 0;
+        for (int j = from; j < to; j++) {
+            if (Double.isNaN(bests[j])) {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            // ロールの出現率に応じて重みづけ
+            double weight = entries.get(j).getWeight();
+            sum += bests[j] * weight;
+            wSum += weight;
+        }
+
+        if (wSum == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        // 相手方の手番として評価しているので、正負反転させて自分の評価値とする
+        return -sum / wSum;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
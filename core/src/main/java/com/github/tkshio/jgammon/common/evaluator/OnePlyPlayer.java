@@ -6,8 +6,12 @@ import com.github.tkshio.jgammon.common.node.Node;
 import com.github.tkshio.jgammon.common.utils.SGTuple;
 import lombok.Builder;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * 一手読みのプレイヤー
@@ -43,14 +47,17 @@ public class OnePlyPlayer<STATE> implements Player<STATE> {
                                       Collection<T> candidates,
                                       GameContextHandler.TebanContextHandler<STATE> contextHandler) {
 
-                EvaluatedNode<T> evaluatedNode = candidates.stream()
-                        .parallel()
-
-                        // 各子局面を評価
-                        .map(node -> {
-                                    var state = node.getState();
-                                    var eval = ev.eval(state);
-                                    contextHandler.evaluateMove(state, eval);
+                // 各子局面をまとめて評価
+                List<T> nodes = new ArrayList<>(candidates);
+                List<Eval> evals = ev.evalAll(nodes.stream()
+                        .map(Node::getState)
+                        .collect(Collectors.toList()));
+
+                EvaluatedNode<T> evaluatedNode = IntStream.range(0, nodes.size())
+                        .mapToObj(i -> {
+                                    var node = nodes.get(i);
+                                    var eval = evals.get(i);
+                                    contextHandler.evaluateMove(node.getState(), eval);
                                     return new EvaluatedNode<>(node, eval);
                                 }
                         )
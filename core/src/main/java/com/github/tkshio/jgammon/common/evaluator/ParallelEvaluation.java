@@ -0,0 +1,34 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * 先読みの評価を、指定のスレッドプールで並列に実行するためのユーティリティ
+ *
+ * <p>並列ストリームは、ForkJoinPoolのタスクの中から実行されるとそのプールで処理されるので、
+ * これを利用して共通プール（{@link ForkJoinPool#commonPool()}）以外のプールで評価を行う。
+ */
+class ParallelEvaluation {
+    private ParallelEvaluation() {
+    }
+
+    /**
+     * 0からn-1までの各インデックスについて関数を並列に適用し、結果を配列として返す
+     *
+     * <p>結果はインデックス順に並ぶので、呼び出し側で順に集計すれば、実行順序によらず同じ値が得られる。
+     *
+     * @param pool 実行に使用するスレッドプール
+     * @param n    タスクの数
+     * @param task 各インデックスについて実行する関数
+     * @return 実行結果の配列
+     */
+    static double[] mapToDouble(ForkJoinPool pool, int n, IntToDoubleFunction task) {
+        return pool.submit(() -> IntStream.range(0, n)
+                .parallel()
+                .mapToDouble(task)
+                .toArray())
+                .join();
+    }
+}
@@ -1,5 +1,8 @@
 package com.github.tkshio.jgammon.common.evaluator;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * 特定の局面を評価する機能のインターフェース
  *
@@ -15,6 +18,21 @@ public interface StateEvaluator<STATE> {
      */
     Eval eval(STATE state);
 
+    /**
+     * 与えられた局面をまとめて評価し、それぞれの評価値を返す
+     *
+     * <p>複数の局面を一度に評価した方が効率的な評価器は、これをオーバーライドする。
+     * デフォルトの実装は、単に{@link #eval(Object)}を順に呼び出す。
+     *
+     * @param states 評価対象の局面のリスト
+     * @return 評価値のリスト、{@code states}と同じ順に並ぶ
+     */
+    default List<Eval> evalAll(List<STATE> states) {
+        return states.stream()
+                .map(this::eval)
+                .collect(Collectors.toList());
+    }
+
 
     /**
      * 開始局面
@@ -6,10 +6,13 @@ import com.github.tkshio.jgammon.common.node.Node;
 import com.github.tkshio.jgammon.common.utils.SGTuple;
 import lombok.Builder;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * 二手読みのプレイヤー
@@ -17,6 +20,8 @@ import java.util.stream.Collectors;
  * <p>自分の手を適用した後の局面について、そこから可能な相手の手をすべて列挙、評価し、
  * 最も自分に有利な手を選ぶ
  *
+ * <p>{@link ChanceNodePruning}が設定されていれば、最善手になりえないことが確定した候補手の評価を途中で打ち切る。
+ *
  * @param <STATE> 局面を表すオブジェクト
  */
 @Builder
@@ -30,6 +35,17 @@ public class TwoPlyPlayer<STATE> implements Player<STATE> {
 
     private final SGTuple<StateEvaluator<STATE>> evs;
 
+    /**
+     * 評価を並列に実行するスレッドプール、既定値は共通プール
+     */
+    @Builder.Default
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * 候補手の評価を打ち切る枝刈りの設定、nullなら枝刈りを行わない
+     */
+    private final ChanceNodePruning<STATE> pruning;
+
     /**
      * ファクトリーメソッド
      *
@@ -38,12 +54,13 @@ public class TwoPlyPlayer<STATE> implements Player<STATE> {
     public SGTuple<NodesEvaluator<STATE>> createEvaluators() {
         return SGTuple.of(
                 // TwoPlyでは、相手の観点で盤面を評価する
-                createEvaluator(evs.gote()),
-                createEvaluator(evs.sente()));
+                // 自分の評価器は、枝刈りの際に候補手を並べる順序を決めるためにのみ使用する
+                createEvaluator(evs.gote(), evs.sente()),
+                createEvaluator(evs.sente(), evs.gote()));
     }
 
 
-    private NodesEvaluator<STATE> createEvaluator(StateEvaluator<STATE> ev) {
+    private NodesEvaluator<STATE> createEvaluator(StateEvaluator<STATE> ev, StateEvaluator<STATE> ownEv) {
         return new NodesEvaluator<>() {
             @Override
             public <T extends Node<STATE>>
@@ -51,15 +68,25 @@ public class TwoPlyPlayer<STATE> implements Player<STATE> {
                                       Collection<T> candidates,
                                       GameContextHandler.TebanContextHandler<STATE> contextHandler) {
 
-                return candidates.stream()
-                        .parallel()
-                        .map(node -> {
-                                    var state = node.getState();
-
-
-                                    // 子ノードを評価する
-                                    Eval eval = evalChildNodes(node, ev);
-                                    contextHandler.evaluateMove(state, eval);
+                List<T> nodes = new ArrayList<>(candidates);
+
+                for (T node : nodes) {
+                    if (node.getChildNodesEntries().isEmpty()) {
+                        // 次局面のグループがない（設定不備により、Director側が次の局面を生成していない）なら、
+                        // 継続できない
+                        throw new IllegalStateException();
+                    }
+                }
+
+                List<Eval> evals = (pruning != null)
+                        ? evalCandidatesWithPruning(nodes, ev, ownEv)
+                        : evalCandidates(nodes, ev);
+
+                return IntStream.range(0, nodes.size())
+                        .mapToObj(i -> {
+                                    var node = nodes.get(i);
+                                    var eval = evals.get(i);
+                                    contextHandler.evaluateMove(node.getState(), eval);
                                     return new EvaluatedNode<>(node, eval);
                                 }
                         )
@@ -109,49 +136,80 @@ public class TwoPlyPlayer<STATE> implements Player<STATE> {
 
 
     /**
-     * 子局面について、相手の観点での最善手を選び、その評価値を正負反転させて自評価とする
+     * 候補手を評価する
      *
-     * @param node    評価対象
-     * @param tebanEv 評価を行うオブジェクト
-     * @param <T>     ノードの型
-     * @return 評価値
+     * <p>候補手×ロールの組をそれぞれ1つのタスクとして並べ、まとめて並列に評価した上で、
+     * 候補手ごとにロール順に集計する。
+     *
+     * @param nodes 候補手
+     * @param ev    評価を行うオブジェクト
+     * @param <T>   ノードの型
+     * @return 評価値のリスト、{@code nodes}と同じ順に並ぶ
      */
-    private <T extends Node<STATE>>
-    Eval evalChildNodes(T node, StateEvaluator<STATE> tebanEv) {
-        // ロール別に分けられた次局面
-        var childNodesEntries = node.getChildNodesEntries();
-
-        if (childNodesEntries.size() == 0) {
-            // 次局面のグループがない（設定不備により、Director側が次の局面を生成していない）なら、
-            // 継続できない
-            throw new IllegalStateException();
+    private <T extends Node<STATE>> List<Eval> evalCandidates(List<T> nodes, StateEvaluator<STATE> ev) {
+        List<Node.ChildNodesEntry<STATE>> entries = new ArrayList<>();
+        int[] offsets = new int[nodes.size() + 1];
+        for (int i = 0; i < nodes.size(); i++) {
+            entries.addAll(nodes.get(i).getChildNodesEntries());
+            offsets[i + 1] = entries.size();
         }
+        double[] bests = ParallelEvaluation.mapToDouble(pool, entries.size(),
+                j -> evalBestReply(entries.get(j), ev));
 
-        DoubleSummaryStatistics wSum = new DoubleSummaryStatistics();
-        double sum = childNodesEntries.stream()
-                .parallel()
-                // 各グループ（ロール）について、相手方の最善の手の評価値を得る
-                .collect(Collectors.summarizingDouble(
-                        childNodesEntry -> {
-                            wSum.accept(childNodesEntry.getWeight());
-                            return childNodesEntry.getNodes().stream().map(
-                                    // あるロールに対するプレイを評価
-                                    n -> {
-                                        var state = n.getState();
-                                        return tebanEv.eval(state);
-                                    })
-
-                                    // 相手にとって最善手を選ぶ
-                                    .max(Eval::compareTo)
-                                    .orElseGet(
-                                            // ※
-                                            () -> () -> Double.NEGATIVE_INFINITY
-                                    )
-                                    // ロールの出現率に応じて重みづけ
-                                    .getScore() * childNodesEntry.getWeight();
-                        })
+        List<Eval> evals = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            // 子ノードの評価値をロール順に集計する
+            evals.add(sumUp(entries, bests, offsets[i], offsets[i + 1]));
+        }
+        return evals;
+    }
+
+    /**
+     * 枝刈りを行いながら候補手を評価する
+     *
+     * @param nodes 候補手
+     * @param ev    評価を行うオブジェクト
+     * @param ownEv 候補手を並べる順序を決めるための、自分の評価器
+     * @param <T>   ノードの型
+     * @return 評価値のリスト、{@code nodes}と同じ順に並ぶ、打ち切った手の評価値は実際の評価値の上限
+     */
+    private <T extends Node<STATE>> List<Eval> evalCandidatesWithPruning(List<T> nodes,
+                                                                         StateEvaluator<STATE> ev,
+                                                                         StateEvaluator<STATE> ownEv) {
+        double[] scores = pruning.evalCandidates(nodes, Node::getChildNodesEntries, 2, ownEv, ev, null,
+                // 次局面がない場合の扱いはevalBestReplyと同じ
+                node -> Double.POSITIVE_INFINITY,
+                pool);
+
+        List<Eval> evals = new ArrayList<>(nodes.size());
+        for (double score : scores) {
+            evals.add(() -> score);
+        }
+        return evals;
+    }
+
+    /**
+     * あるロールに対する子局面について、相手の観点での最善手を選び、その評価値を返す
+     *
+     * @param childNodesEntry 評価対象の、あるロールに対する子局面のグループ
+     * @param tebanEv         評価を行うオブジェクト
+     * @return 評価値
+     */
+    private double evalBestReply(Node.ChildNodesEntry<STATE> childNodesEntry,
+                                 StateEvaluator<STATE> tebanEv) {
+        // あるロールに対するプレイをまとめて評価
+        List<STATE> states = childNodesEntry.getNodes().stream()
+                .map(Node::getState)
+                .collect(Collectors.toList());
+        return tebanEv.evalAll(states).stream()
+
+                // 相手にとって最善手を選ぶ
+                .max(Eval::compareTo)
+                .orElseGet(
+                        // ※
+                        () -> () -> Double.NEGATIVE_INFINITY
                 )
-                .getSum();
+                .getScore();
 
         // ※
         // 次局面がない場合、すでに対局は終了している
@@ -162,11 +220,31 @@ public class TwoPlyPlayer<STATE> implements Player<STATE> {
         // TwoPlyに限らず、ゲーム進行の処理には引き分けがない・パス可能・
         // 常にプレイ側が勝ち終わりなどバックギャモン固有の作りこみが
         // 残ってしまっている
+    }
 
+    /**
+     * ロールごとの評価値を出現率で重みづけして平均し、正負反転させて自評価とする
+     *
+     * @param entries ロール別に分けられた次局面のリスト
+     * @param bests   entriesに対応する、相手の最善手の評価値
+     * @param from    集計範囲の先頭（含む）
+     * @param to      集計範囲の末尾（含まない）
+     * @return 評価値
+     */
+    private Eval sumUp(List<Node.ChildNodesEntry<STATE>> entries, double[] bests, int from, int to) {
+        // 実行順序によらず同じ値になるよう、集計は逐次的に行う
+        double sum = 0;
+        double wSum = 0;
+        for (int j = from; j < to; j++) {
+            double weight = entries.get(j).getWeight();
+            sum += bests[j] * weight;
+            wSum += weight;
+        }
 
         // 相手方の手番として評価しているので、正負反転させて自分の評価値とする
         // （呼び出し元がmaxで選べるようにする）
-        return () -> -sum / wSum.getSum();
+        double score = -sum / wSum;
+        return () -> score;
     }
 
     @Override
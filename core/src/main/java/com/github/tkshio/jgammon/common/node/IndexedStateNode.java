@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -115,6 +116,55 @@ public class IndexedStateNode<STATE, KEY extends IndexedStateNode.HasWeight> imp
         return new IndexedStateNode<>(state, updatedIndex, this.keySupplier);
     }
 
+    /**
+     * 自身を、子ノードを保持せず参照されるたびに生成するノードに置き換える
+     *
+     * <p>{@link #grow(Collection, Supplier, LeafStatesFactory)}と異なり、子ノードはあらかじめ生成されず、
+     * {@link #getChildNodesEntries()}、{@link #getNextStates()}が呼ばれた時点で生成される。
+     * 生成された子ノードも同様に振る舞うので、ツリーは任意の深さまで延びていることになる。
+     * 自身がすでに保持している子ノードは破棄される。
+     *
+     * @param keys              自身の子ノードのKEYをすべて列挙したコレクション
+     * @param newKeys           子ノード以下のKEYをすべて列挙したコレクション
+     * @param newKeySupplier    子ノード以下に保持させるキーの生成源
+     * @param leafStatesFactory 子ノードを生成する関数
+     * @return 置き換えられたノード
+     */
+    public IndexedStateNode<STATE, KEY> growOnDemand(
+            Collection<KEY> keys,
+            Collection<KEY> newKeys,
+            Supplier<KEY> newKeySupplier,
+            LeafStatesFactory<STATE, KEY> leafStatesFactory) {
+        return new OnDemandIndexedStateNode<>(state, keys, keySupplier,
+                newKeys, newKeySupplier, leafStatesFactory);
+    }
+
+    /**
+     * 自身を、参照された時点で子ノードを生成し、生成した子ノードを保持するノードに置き換える
+     *
+     * <p>{@link #growOnDemand(Collection, Collection, Supplier, LeafStatesFactory)}と同様に子ノードを必要になった時点で生成するが、
+     * 生成した子ノードは破棄せず、以降の参照ではそれを返す。生成された子ノードも同様に振る舞う。
+     *
+     * <p>先読みで生成された子ノードは、{@link #getNextStates()}で次の手番に移った後もそのまま使用されるので、
+     * 同じ局面の生成をやり直さずに済み、不足している深さだけが新たに生成される。
+     * 一方、ツリーは参照されている限り保持されるので、ルートを次の手番のノードに移していく（以前のノードへの参照を手放す）
+     * 使い方を前提とする。
+     *
+     * @param keys              自身の子ノードのKEYをすべて列挙したコレクション
+     * @param newKeys           子ノード以下のKEYをすべて列挙したコレクション
+     * @param newKeySupplier    子ノード以下に保持させるキーの生成源
+     * @param leafStatesFactory 子ノードを生成する関数
+     * @return 置き換えられたノード
+     */
+    public IndexedStateNode<STATE, KEY> growRetaining(
+            Collection<KEY> keys,
+            Collection<KEY> newKeys,
+            Supplier<KEY> newKeySupplier,
+            LeafStatesFactory<STATE, KEY> leafStatesFactory) {
+        return new RetainingIndexedStateNode<>(state, keys, keySupplier,
+                newKeys, newKeySupplier, leafStatesFactory);
+    }
+
     /**
      * キーのコレクションを取得する
      *
@@ -205,3 +255,121 @@ class LeafIndexedStateNode<STATE, KEY extends IndexedStateNode.HasWeight> extend
 
 }
 
+
+/**
+ * 子ノードを保持せず、参照されるたびに生成するノードを表すクラス
+ *
+ * <p>生成した子ノードを手放せば、その下のツリーも保持されないので、
+ * 先読みの際に評価が終わった候補手から順にメモリを解放できる。
+ *
+ * @param <STATE> 管理対象のオブジェクトのクラス
+ * @param <KEY>   キーとなるクラス
+ */
+class OnDemandIndexedStateNode<STATE, KEY extends IndexedStateNode.HasWeight> extends IndexedStateNode<STATE, KEY> {
+    private final Collection<KEY> keys;
+    final Collection<KEY> newKeys;
+    final Supplier<KEY> newKeySupplier;
+    final LeafStatesFactory<STATE, KEY> leafStatesFactory;
+
+    OnDemandIndexedStateNode(STATE state,
+                             Collection<KEY> keys,
+                             Supplier<KEY> keySupplier,
+                             Collection<KEY> newKeys,
+                             Supplier<KEY> newKeySupplier,
+                             LeafStatesFactory<STATE, KEY> leafStatesFactory) {
+        super(state, Collections.emptyMap(), keySupplier);
+        this.keys = keys;
+        this.newKeys = newKeys;
+        this.newKeySupplier = newKeySupplier;
+        this.leafStatesFactory = leafStatesFactory;
+    }
+
+    @Override
+    public Collection<ChildNodesEntry<STATE>> getChildNodesEntries() {
+        return keys.stream().map(
+                key -> new ChildNodesEntry<STATE>() {
+                    @Override
+                    public double getWeight() {
+                        return key.getWeight();
+                    }
+
+                    @Override
+                    public Collection<? extends Node<STATE>> getNodes() {
+                        // 呼ばれるたびに生成し直す（RetainingIndexedStateNodeでは、生成済みのものを返す）
+                        return createChildren(key);
+                    }
+                }
+        ).collect(Collectors.toList());
+    }
+
+    @Override
+    public IndexedStateNode<STATE, KEY> grow(
+            Collection<KEY> keys,
+            Supplier<KEY> newKeySupplier,
+            LeafStatesFactory<STATE, KEY> leafStatesFactory) {
+        // 子ノードは参照時に生成されるので、延ばす必要はない
+        return this;
+    }
+
+    @Override
+    Collection<KEY> getKeys() {
+        return keys;
+    }
+
+    @Override
+    public Collection<IndexedStateNode<STATE, KEY>> getNextStates() {
+        KEY key = keySupplier.get();
+        if (!keys.contains(key)) {
+            var msg = MessageFormat.format(
+                    "Unknown key{0} specified", key.toString());
+            throw new IllegalStateException(msg);
+        }
+        return createChildren(key);
+    }
+
+    Collection<IndexedStateNode<STATE, KEY>> createChildren(KEY key) {
+        return leafStatesFactory.create(this, key).stream()
+                .map(this::createChild)
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    IndexedStateNode<STATE, KEY> createChild(STATE child) {
+        return new OnDemandIndexedStateNode<>(child,
+                newKeys, newKeySupplier,
+                newKeys, newKeySupplier, leafStatesFactory);
+    }
+}
+
+/**
+ * 参照された時点で子ノードを生成し、生成した子ノードを保持するノードを表すクラス
+ *
+ * <p>並列に評価するプレイヤーからも参照されるので、子ノードの生成はキーごとに一度だけ行われるよう同期する。
+ *
+ * @param <STATE> 管理対象のオブジェクトのクラス
+ * @param <KEY>   キーとなるクラス
+ */
+class RetainingIndexedStateNode<STATE, KEY extends IndexedStateNode.HasWeight> extends OnDemandIndexedStateNode<STATE, KEY> {
+    private final Map<KEY, Collection<IndexedStateNode<STATE, KEY>>> children = new ConcurrentHashMap<>();
+
+    RetainingIndexedStateNode(STATE state,
+                              Collection<KEY> keys,
+                              Supplier<KEY> keySupplier,
+                              Collection<KEY> newKeys,
+                              Supplier<KEY> newKeySupplier,
+                              LeafStatesFactory<STATE, KEY> leafStatesFactory) {
+        super(state, keys, keySupplier, newKeys, newKeySupplier, leafStatesFactory);
+    }
+
+    @Override
+    Collection<IndexedStateNode<STATE, KEY>> createChildren(KEY key) {
+        // 生成済みなら、それを返す
+        return children.computeIfAbsent(key, super::createChildren);
+    }
+
+    @Override
+    IndexedStateNode<STATE, KEY> createChild(STATE child) {
+        return new RetainingIndexedStateNode<>(child,
+                newKeys, newKeySupplier,
+                newKeys, newKeySupplier, leafStatesFactory);
+    }
+}
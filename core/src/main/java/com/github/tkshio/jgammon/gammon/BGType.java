@@ -9,8 +9,8 @@ public enum BGType {
                     -5, 0, 0, 0, 3, 0,
                     5, 0, 0, 0, 0, -2,
                     0
-            }
-
+            },
+            BoardRepresentation.packed
     ),
     half(10, 17, 13,
             new int[]{
@@ -20,7 +20,8 @@ public enum BGType {
                     -3, 0, 2, 0,
                     3, 0, 0, -2,
                     0
-            }),
+            },
+            BoardRepresentation.packed),
     mini(8, 13, 10,
             new int[]{
                     0,
@@ -29,17 +30,21 @@ public enum BGType {
                     -3, 0, 0,
                     3, 0, -2,
                     0
-            });
+            },
+            BoardRepresentation.packed);
     private final int initialPieces;
     private final int bearOffPos;
     private final int innerPos;
     private final int[] initialArrangement;
+    private final BoardRepresentation representation;
 
-    BGType(int initialPieces, int bearOffPos, int innerPos, int[] initialArrangement) {
+    BGType(int initialPieces, int bearOffPos, int innerPos, int[] initialArrangement,
+           BoardRepresentation representation) {
         this.initialPieces = initialPieces;
         this.bearOffPos = bearOffPos;
         this.innerPos = innerPos;
         this.initialArrangement = initialArrangement;
+        this.representation = representation;
     }
 
     public int getBearOffPos() {
@@ -57,4 +62,13 @@ public enum BGType {
     public int[] initialArrangement() {
         return initialArrangement;
     }
+
+    /**
+     * このタイプの盤面が既定で使用する内部表現を返す
+     *
+     * @return 盤面の内部表現
+     */
+    public BoardRepresentation getRepresentation() {
+        return representation;
+    }
 }
@@ -1,12 +1,9 @@
 package com.github.tkshio.jgammon.gammon;
 
-import com.github.tkshio.jgammon.common.utils.Memoizer;
 import com.github.tkshio.jgammon.gammon.move.BGBoard;
 import com.github.tkshio.jgammon.gammon.move.CheckerPlay;
 import com.github.tkshio.jgammon.gammon.move.Move;
 
-import java.util.function.Supplier;
-
 /**
  * バックギャモンの盤面を表す
  *
@@ -16,19 +13,38 @@ import java.util.function.Supplier;
  * 座標系は常に主観的観点をとり、ムーブを行うプレイヤーの開始位置が1、相手の開始位置が24となる。ムーブは、数値が増える方向に進行することになる。
  *
  * <p>また、immutableなオブジェクトであるため、盤面の状態を直接変更する手段は提供されていない。ムーブを適用すると、新たなオブジェクトが生成される。
+ *
+ * <p>盤面は64bitのZobristハッシュ値（{@link #getHash()}）を保持しており、ムーブの適用・反転の際に差分だけで更新される。
+ * {@code equals}/{@code hashCode}は駒の配置に基づいて定義されているので、キャッシュや集合のキーとして使用できる。
+ *
+ * <p>同様に、双方のピップ数・ベアオフ済の駒数・最後尾の駒の位置も保持しており、ムーブの適用の際にはムーブ単位で更新される。
+ * 終了判定やベアリングオフの判定は、盤面を走査せずにこれらの値から行う。
  */
 public class BackgammonBoard implements BGBoard {
 
 
-    private final IntArrayBoard board;
+    private final BoardPoints board;
     private final int size;
     private final int initialPieces;
     private final int bearOffPos;
     private final int highestInner;
-    private final Supplier<Boolean> getIsInBearOff = Memoizer.memoize(this::_isInBearingOff);
+    private final ZobristKeys keys;
+    private final long hash;
+    private final long revertedHash;
 
-    private BackgammonBoard(IntArrayBoard board,
-                            int size, int initialPieces, int bearOffPos, int highestInner) {
+    // 駒の配置から決まる集計値、相手側のものも自分の座標系で保持する
+    private final int pips;
+    private final int opponentPips;
+    private final int borneOff;
+    private final int opponentBorneOff;
+    private final int highest;
+    private final int opponentHighest;
+
+    private BackgammonBoard(BoardPoints board,
+                            int size, int initialPieces, int bearOffPos, int highestInner,
+                            ZobristKeys keys, long hash, long revertedHash,
+                            int pips, int opponentPips, int borneOff, int opponentBorneOff,
+                            int highest, int opponentHighest) {
         if (size <= bearOffPos ||
                 highestInner >= bearOffPos) {
             throw new IllegalArgumentException();
@@ -39,6 +55,15 @@ public class BackgammonBoard implements BGBoard {
         this.bearOffPos = bearOffPos;
         this.highestInner = highestInner;
         this.initialPieces = initialPieces;
+        this.keys = keys;
+        this.hash = hash;
+        this.revertedHash = revertedHash;
+        this.pips = pips;
+        this.opponentPips = opponentPips;
+        this.borneOff = borneOff;
+        this.opponentBorneOff = opponentBorneOff;
+        this.highest = highest;
+        this.opponentHighest = opponentHighest;
     }
 
     /**
@@ -61,20 +86,59 @@ public class BackgammonBoard implements BGBoard {
      */
     public static BackgammonBoard create(BGType bgType, int[] initialArrangement) {
 
-        return create(initialArrangement,
+        return create(bgType, initialArrangement, bgType.getRepresentation());
+    }
+
+    /**
+     * 配置と内部表現を指定可能なファクトリーメソッド
+     *
+     * @param bgType             プレイするギャモンのタイプ
+     * @param initialArrangement 初期配置
+     * @param representation     盤面の内部表現
+     * @return 生成されたBackgammonBoardオブジェクト
+     */
+    public static BackgammonBoard create(BGType bgType, int[] initialArrangement,
+                                         BoardRepresentation representation) {
+
+        return create(representation.create(initialArrangement),
                 bgType.getInitialPieces(),
                 bgType.getBearOffPos(),
                 bgType.getInnerPos()
         );
     }
 
-    private static BackgammonBoard create(int[] initialArrangement,
+    private static BackgammonBoard create(BoardPoints points,
                                           int initialPieces,
                                           int bearOffPos,
                                           int highestInner) {
+        var keys = ZobristKeys.of(points.size());
+
+        // 集計値は、生成時だけ盤面を走査して求める
+        int pips = 0;
+        int opponentPips = 0;
+        int onBoard = 0;
+        int opponentOnBoard = 0;
+        int highest = bearOffPos;
+        int opponentHighest = 0;
+        for (int pos = 0; pos <= bearOffPos; pos++) {
+            int n = points.getPointAt(pos);
+            if (n > 0) {
+                pips += n * (bearOffPos - pos);
+                onBoard += n;
+                highest = Math.min(highest, pos);
+            } else if (n < 0) {
+                opponentPips += -n * pos;
+                opponentOnBoard += -n;
+                opponentHighest = pos;
+            }
+        }
+
         return new BackgammonBoard(
-                IntArrayBoard.create(initialArrangement),
-                initialArrangement.length, initialPieces, bearOffPos, highestInner);
+                points,
+                points.size(), initialPieces, bearOffPos, highestInner,
+                keys, keys.hash(points), keys.revertedHash(points),
+                pips, opponentPips, initialPieces - onBoard, initialPieces - opponentOnBoard,
+                highest, opponentHighest);
     }
 
     /**
@@ -84,7 +148,7 @@ public class BackgammonBoard implements BGBoard {
      * @return 適用後の盤面
      */
     BackgammonBoard withMove(Move move) {
-        return duplicateWith(IntArrayBoard.dupWithMoves(board, move));
+        return withMoves(move);
     }
 
     /**
@@ -96,7 +160,63 @@ public class BackgammonBoard implements BGBoard {
      * @return 適用後の盤面
      */
     BackgammonBoard withCheckerPlay(CheckerPlay checkerPlay) {
-        return duplicateWith(IntArrayBoard.dupWithMoves(board, checkerPlay.getMoves()));
+        return withMoves(checkerPlay.getMoves());
+    }
+
+    private BackgammonBoard withMoves(Move... moves) {
+        var points = board.withMoves(moves);
+
+        // ムーブにより駒数が変わりうる位置を集め、あわせて集計値を更新する
+        long touched = 0;
+        int _pips = pips;
+        int _opponentPips = opponentPips;
+        int _borneOff = borneOff;
+        int _opponentHighest = opponentHighest;
+        for (Move move : moves) {
+            int from = move.getFrom();
+            touched |= 1L << from;
+            if (move.isBearOff()) {
+                _pips -= bearOffPos - from;
+                _borneOff++;
+            } else {
+                int to = move.getTo();
+                touched |= 1L << to;
+                _pips -= to - from;
+            }
+            if (move.isHit()) {
+                touched |= 1L << (size - 1);
+                // ヒットされた駒はバーに戻る
+                _opponentPips += bearOffPos - move.getTo();
+                _opponentHighest = bearOffPos;
+            }
+        }
+
+        // 自駒は前進しかしないので、最後尾の位置は元の位置から前方に探せばよい
+        int _highest = highest;
+        while (_highest < bearOffPos && points.getPointAt(_highest) <= 0) {
+            _highest++;
+        }
+
+        // 変化した位置についてだけ、キーを入れ替える
+        long _hash = hash;
+        long _revertedHash = revertedHash;
+        while (touched != 0) {
+            int pos = Long.numberOfTrailingZeros(touched);
+            touched &= touched - 1;
+
+            int before = board.getPointAt(pos);
+            int after = points.getPointAt(pos);
+            if (before != after) {
+                _hash ^= keys.key(pos, before) ^ keys.key(pos, after);
+                int revertedPos = size - 1 - pos;
+                _revertedHash ^= keys.key(revertedPos, -before) ^ keys.key(revertedPos, -after);
+            }
+        }
+        return new BackgammonBoard(points,
+                size, initialPieces, bearOffPos, highestInner,
+                keys, _hash, _revertedHash,
+                _pips, _opponentPips, _borneOff, opponentBorneOff,
+                _highest, _opponentHighest);
     }
 
     /**
@@ -107,15 +227,21 @@ public class BackgammonBoard implements BGBoard {
      * @return 反転させた盤面
      */
     BackgammonBoard revert() {
-        return duplicateWith(IntArrayBoard.revert(board));
-    }
-
-    private BackgammonBoard duplicateWith(IntArrayBoard intArrayBoard) {
-        return new BackgammonBoard(intArrayBoard,
+        // 反転後の盤面のハッシュ値・集計値は保持済なので、入れ替えるだけでよい
+        return new BackgammonBoard(board.revert(),
                 size,
                 initialPieces,
                 bearOffPos,
-                highestInner);
+                highestInner,
+                keys,
+                revertedHash,
+                hash,
+                opponentPips,
+                pips,
+                opponentBorneOff,
+                borneOff,
+                bearOffPos - opponentHighest,
+                bearOffPos - highest);
     }
 
     @Override
@@ -153,6 +279,7 @@ public class BackgammonBoard implements BGBoard {
      *
      * @return 19, またはボードサイズに応じた値
      */
+    @Override
     public int getInnerPos() {
         return highestInner;
     }
@@ -169,16 +296,129 @@ public class BackgammonBoard implements BGBoard {
 
     @Override
     public boolean isInBearingOff() {
-        return getIsInBearOff.get();
+        // 最後尾の駒がインナーボードにある（駒がない場合を含む）
+        return highest >= highestInner;
+    }
+
+    /**
+     * ピップ数、すなわちすべての自駒を上げるのに必要な目の合計を返す
+     *
+     * @return ピップ数
+     */
+    public int getPipCount() {
+        return pips;
     }
 
-    private boolean _isInBearingOff() {
-        for (int i = 0; i < getInnerPos(); i++) {
-            if (getPointAt(i) > 0) {
+    /**
+     * 相手のピップ数を返す
+     *
+     * @return 相手のピップ数
+     */
+    public int getOpponentPipCount() {
+        return opponentPips;
+    }
+
+    /**
+     * ベアオフ済の自駒の数を返す
+     *
+     * @return ベアオフ済の駒数
+     */
+    public int getBorneOffCount() {
+        return borneOff;
+    }
+
+    /**
+     * ベアオフ済の相手駒の数を返す
+     *
+     * @return ベアオフ済の相手駒の数
+     */
+    public int getOpponentBorneOffCount() {
+        return opponentBorneOff;
+    }
+
+    /**
+     * 最後尾の自駒の位置を返す
+     *
+     * @return 最後尾の自駒の位置、オンザバーなら0、自駒がすべて上がっていれば{@code getBearOffPos()}
+     */
+    public int getHighestPos() {
+        return highest;
+    }
+
+    /**
+     * 最後尾の相手駒の位置を、この盤面の座標で返す
+     *
+     * @return 最後尾の相手駒の位置、オンザバーなら{@code getBearOffPos()}、相手駒がすべて上がっていれば0
+     */
+    public int getOpponentHighestPos() {
+        return opponentHighest;
+    }
+
+    /**
+     * 双方の駒がまだ接触しうるかどうか、すなわちレースになっていないかどうかを返す
+     *
+     * @return 最後尾の自駒より後ろに相手駒がある場合は真
+     */
+    public boolean isContact() {
+        return highest < opponentHighest;
+    }
+
+    /**
+     * 盤面のZobristハッシュ値を返す
+     *
+     * <p>値は駒の配置とBGType（盤面の大きさ）だけで決まり、内部表現や盤面に至る手順、実行環境によらず一定である。
+     * 定義は{@code ZobristKeys}を参照のこと。
+     *
+     * @return 64bitのハッシュ値
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * 反転させた盤面、すなわち{@code revert()}が返す盤面のハッシュ値を返す
+     *
+     * @return 64bitのハッシュ値
+     */
+    public long getRevertedHash() {
+        return revertedHash;
+    }
+
+    /**
+     * 駒の配置が同一であるかどうかを判定する
+     *
+     * <p>内部表現（{@link BoardRepresentation}）の違いは区別しない。
+     *
+     * @param o 比較対象
+     * @return 同じ大きさの盤面で、すべてのポイントの駒数が一致していれば真
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BackgammonBoard)) {
+            return false;
+        }
+        var other = (BackgammonBoard) o;
+        if (hash != other.hash
+                || size != other.size
+                || bearOffPos != other.bearOffPos
+                || highestInner != other.highestInner
+                || initialPieces != other.initialPieces) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (getPointAt(i) != other.getPointAt(i)) {
                 return false;
             }
         }
         return true;
     }
 
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
 }
@@ -17,4 +17,13 @@ class BackgammonBoardRollApplier {
     static RollApplier<BackgammonBoard> create() {
         return RollApplier.create(BackgammonBoard::withMove);
     }
+
+    /**
+     * 作業用盤面でムーブの適用・取り消しを行うRollApplierを生成する
+     *
+     * @return 生成されたRollApplierオブジェクト
+     */
+    static RollApplier<BackgammonBoard> createMakeUnmake() {
+        return RollApplier.createMakeUnmake();
+    }
 }
@@ -1,65 +1,68 @@
 package com.github.tkshio.jgammon.gammon;
 
-import com.github.tkshio.jgammon.common.utils.Memoizer;
 import com.github.tkshio.jgammon.common.utils.RWTuple;
 import com.github.tkshio.jgammon.gammon.move.CheckerPlay;
 
-import java.util.function.Supplier;
-import java.util.stream.IntStream;
-
 /**
  * 対局中の状態（局面）を表す抽象クラス
  *
  * <p>{@link BackgammonBoard}が盤と駒の関係のみを表すのに対し、こちらは手番、終了状態かどうかの管理など、ゲーム中の流れを含めた情報を管理する
  * <p> BackgammonBoard同様、このクラスもimmutableで、プレイを行う都度新しいオブジェクトが生成される
  * <p>これを継承した{@code BackgammonStateOperator.BackgammonStateRed}と{@code BackgammonStateOperator.BackgammonStateWhite} を交互に切り替えて使用している
+ * <p>{@code equals}/{@code hashCode}は手番側（Red/White）と盤面のみに基づく。手数や直前のプレイは区別しない。
  */
 public abstract class BackgammonState {
-    private final BackgammonBoard board;
-    private final BackgammonBoard reverted;
-    private final Supplier<AbsoluteBackgammonBoard> absolute;
+    // 手番側を区別するため、盤面のハッシュ値にXORする値
+    private static final RWTuple<Long> SIDE_KEYS = RWTuple.of(0L, 0x9E3779B97F4A7C15L);
 
+    // 手番側がRedかどうか
+    private static final RWTuple<Boolean> IS_RED = RWTuple.of(true, false);
+
+    // 相手観点の盤面は、直前のプレイを適用した盤面そのものなので常に保持している
+    private final BackgammonBoard reverted;
     private final CheckerPlay lastCheckerPlay;
     private final int ply;
-    private final Supplier<BackgammonResult> result;
 
-    protected BackgammonState(BackgammonBoard board, BackgammonBoard reverted, BackgammonBoard absolute, CheckerPlay checkerPlay, int ply) {
+    // 以下は最初に参照された時点で求める値で、nullは未計算を示す
+    // いずれもimmutableなオブジェクトなので、複数のスレッドで重複して計算されても結果は同じになり、同期は不要
+    private BackgammonBoard board;
+    private AbsoluteBackgammonBoard absolute;
+    private BackgammonResult result;
+
+    /**
+     * コンストラクタ
+     *
+     * @param board       手番側観点の盤面、nullの場合は最初に参照された時点でrevertedを反転して求める
+     * @param reverted    相手観点の盤面
+     * @param checkerPlay 直前のプレイ
+     * @param ply         何手番目か
+     */
+    protected BackgammonState(BackgammonBoard board, BackgammonBoard reverted, CheckerPlay checkerPlay, int ply) {
         this.board = board;
         this.reverted = reverted;
-        this.absolute = Memoizer.memoize(() -> AbsoluteBackgammonBoard.absolute(absolute));
         this.lastCheckerPlay = checkerPlay;
         this.ply = ply;
-        this.result = Memoizer.memoize(() -> isEndOfGame(this));
     }
 
     // 終了判定を行う
     private static BackgammonResult isEndOfGame(BackgammonState state) {
 
         // 相手が手番を終えた状態の盤面を使用する
+        // 盤面の保持する集計値を参照するので、走査や反転は不要
         var reverted = state.getRevertedBoard();
+        int pieces = reverted.getInitialPieces();
 
         // 相手が手番を終えた状態で、まだ相手駒が一個でも残っていれば終了ではない
-        if (IntStream.range(0, reverted.getBearOffPos()).anyMatch(i -> reverted.getPointAt(i) > 0)) {
+        if (reverted.getBorneOffCount() < pieces) {
             return BackgammonResult.InGame;
         }
 
         // 相手側の駒がない＝相手の勝利
 
-        var board = state.getBoard();
-        // 自駒の数を数えて、ギャモンの判定を行う
-        long count = IntStream.range(0, board.getBearOffPos()).map(board::getPointAt).sum();
-
-        if (count == board.getInitialPieces()) {
-            // 敵のインナーボードに自分の駒があるかどうか
-            int innerPos = reverted.getInnerPos();
-            int bearOffPos = reverted.getBearOffPos();
-            if (IntStream.range(innerPos, bearOffPos)
-                    .anyMatch(i -> reverted.getPointAt(i) < 0)
-            ) {
-                return BackgammonResult.Backgammon;
-            }
-            // バーポイントにある場合もバックギャモン
-            if (board.getPointAt(0) > 0) {
+        // 自駒が一つも上がっていなければギャモン
+        if (reverted.getOpponentBorneOffCount() == 0) {
+            // 敵のインナーボード、またはバーポイントに自分の駒があればバックギャモン
+            if (reverted.getOpponentHighestPos() >= reverted.getInnerPos()) {
                 return BackgammonResult.Backgammon;
             }
             return BackgammonResult.Gammon;
@@ -78,7 +81,12 @@ public abstract class BackgammonState {
      * @return 絶対座標のボード
      */
     public AbsoluteBackgammonBoard getAbsoluteBoard() {
-        return absolute.get();
+        var _absolute = absolute;
+        if (_absolute == null) {
+            _absolute = AbsoluteBackgammonBoard.absolute(acceptRWTuple(IS_RED) ? getBoard() : reverted);
+            absolute = _absolute;
+        }
+        return _absolute;
     }
 
     /**
@@ -99,13 +107,20 @@ public abstract class BackgammonState {
      * @return 盤面を表すオブジェクト
      */
     public BackgammonBoard getBoard() {
-        return board;
+        var _board = board;
+        if (_board == null) {
+            _board = reverted.revert();
+            board = _board;
+        }
+        return _board;
     }
 
     /**
      * 相手観点の盤面を返す
      * <p>
      * {@code getBoard()}と同内容、逆転座標の盤面を返す
+     * <p>
+     * プレイを適用した盤面そのものなので、{@code getBoard()}と異なり反転のコストはかからない
      *
      * @return 盤面を表すオブジェクト
      */
@@ -121,7 +136,12 @@ public abstract class BackgammonState {
      * @return ゲーム状態
      */
     public BackgammonResult getResult() {
-        return result.get();
+        var _result = result;
+        if (_result == null) {
+            _result = isEndOfGame(this);
+            result = _result;
+        }
+        return _result;
     }
 
     /**
@@ -146,6 +166,35 @@ public abstract class BackgammonState {
         return ply;
     }
 
+    /**
+     * 局面のハッシュ値を返す
+     *
+     * <p>手番側の盤面（{@link #getBoard()}）のハッシュ値に、手番側ごとの固定値をXORした値で、盤面同様実行環境によらず一定である。
+     *
+     * @return 64bitのハッシュ値
+     * @see BackgammonBoard#getHash()
+     */
+    public long getHash() {
+        // getBoard().getHash()と同値だが、盤面の反転を避けるため相手観点の盤面から得る
+        return reverted.getRevertedHash() ^ acceptRWTuple(SIDE_KEYS);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return reverted.equals(((BackgammonState) o).reverted);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(getHash());
+    }
+
     /**
      * 受け取ったRWTupleについて、自局面が赤ならred()、白ならwhite()を返す
      *
@@ -1,12 +1,16 @@
 package com.github.tkshio.jgammon.gammon;
 
+import com.github.tkshio.jgammon.common.node.IndexedStateNode;
 import com.github.tkshio.jgammon.common.utils.RWTuple;
 import com.github.tkshio.jgammon.gammon.move.CheckerPlay;
 import com.github.tkshio.jgammon.gammon.move.Roll;
 import com.github.tkshio.jgammon.gammon.move.RollApplier;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -17,9 +21,11 @@ import java.util.stream.Collectors;
 public class BackgammonStateOperator {
     private final BackgammonDice bgDice;
     private final RollApplier<BackgammonBoard> rollApplier = BackgammonBoardRollApplier.create();
+    private final boolean distinctPlays;
 
-    private BackgammonStateOperator(BackgammonDice bgDice) {
+    private BackgammonStateOperator(BackgammonDice bgDice, boolean distinctPlays) {
         this.bgDice = bgDice;
+        this.distinctPlays = distinctPlays;
     }
 
     /**
@@ -38,7 +44,18 @@ public class BackgammonStateOperator {
      * @return 生成されたオブジェクト
      */
     public static BackgammonStateOperator create(BackgammonDice bgDice) {
-        return new BackgammonStateOperator(bgDice);
+        return create(bgDice, false);
+    }
+
+    /**
+     * ダイスと、次局面の重複除去の有無を指定可能なファクトリーメソッド
+     *
+     * @param bgDice        使用するダイス
+     * @param distinctPlays trueの場合、{@link #buildNextState(BackgammonState, Roll)}は同一の盤面に至るプレイを一つにまとめる
+     * @return 生成されたオブジェクト
+     */
+    public static BackgammonStateOperator create(BackgammonDice bgDice, boolean distinctPlays) {
+        return new BackgammonStateOperator(bgDice, distinctPlays);
     }
 
     private static BackgammonStateRed asRed(BackgammonBoard board, BackgammonBoard reverted, CheckerPlay checkerPlay, int ply) {
@@ -96,21 +113,63 @@ public class BackgammonStateOperator {
      * 与えられた局面とロールに対して、可能な局面をすべて列挙する
      *
      * <p> 局面が終了状態にある場合、空のコレクションが返る
+     * <p> 同一の盤面に至るプレイをまとめるかどうかは、生成時の指定に従う
      *
      * @param state 対象局面
      * @param roll  ロール
      * @return 次の手番の局面のコレクション
      */
     public Collection<BackgammonState> buildNextState(BackgammonState state, Roll roll) {
+        return buildNextState(state, roll, distinctPlays);
+    }
+
+    /**
+     * 与えられた局面とロールに対して、可能な局面をすべて列挙する
+     *
+     * <p> distinctが真の場合、適用後の盤面が同一となるプレイは、最初に列挙された一つだけを残す。
+     * たとえば 3-1 での 8/5 6/5 と 6/5 8/5 のように、駒を動かす順序が異なるだけのプレイは一つの局面にまとめられる。
+     *
+     * @param state    対象局面
+     * @param roll     ロール
+     * @param distinct 同一の盤面に至るプレイをまとめる場合は真
+     * @return 次の手番の局面のコレクション
+     */
+    public Collection<BackgammonState> buildNextState(BackgammonState state, Roll roll, boolean distinct) {
         if (state.getResult().isOver()) {
             return Collections.emptyList();
         }
 
         var board = state.getBoard();
-        return rollApplier
+        var nextStates = rollApplier
                 .listupMoves(board, roll)
-                .map(checkerPlay -> withCheckerPlay(state, checkerPlay))
-                .collect(Collectors.toList());
+                .map(checkerPlay -> withCheckerPlay(state, checkerPlay));
+
+        if (distinct) {
+            // 盤面をキーとして、最初に現れた局面を代表として残す（反転を避けるため、相手観点の盤面を使う）
+            return new ArrayList<>(nextStates
+                    .collect(Collectors.toMap(
+                            BackgammonState::getRevertedBoard,
+                            Function.identity(),
+                            (first, duplicated) -> first,
+                            LinkedHashMap::new))
+                    .values());
+        }
+        return nextStates.collect(Collectors.toList());
+    }
+
+    /**
+     * 与えられた局面から、ありうるロールごとの次局面を必要に応じて生成するノードを返す
+     *
+     * <p>次局面は{@link #buildNextState(BackgammonState, Roll)}で生成される。
+     *
+     * @param state 対象局面
+     * @return 生成されたノード
+     * @see com.github.tkshio.jgammon.common.evaluator.NPlyPlayer NPlyPlayer
+     */
+    public IndexedStateNode<BackgammonState, Roll> onDemandNode(BackgammonState state) {
+        var rolls = listupRolls();
+        return IndexedStateNode.initialNode(state, this::generateRoll)
+                .growOnDemand(rolls, rolls, this::generateRoll, this::buildNextState);
     }
 
     /**
@@ -130,19 +189,19 @@ public class BackgammonStateOperator {
      * @return 生成された初期局面
      */
     public BackgammonStateWhite whiteGoesFirst(BackgammonBoard board) {
-        return asWhite(board.revert(), board, CheckerPlay.EMPTY, 0);
+        return asWhite(null, board, CheckerPlay.EMPTY, 0);
     }
 
     private static class BackgammonStateWhite extends BackgammonState {
 
         BackgammonStateWhite(BackgammonBoard board, BackgammonBoard reverted, CheckerPlay checkerPlay, int ply) {
-            super(board, reverted, reverted, checkerPlay, ply);
+            super(board, reverted, checkerPlay, ply);
         }
 
         @Override
         public BackgammonState withCheckerPlay(CheckerPlay checkerPlay) {
             var afterMove = getBoard().withCheckerPlay(checkerPlay);
-            return BackgammonStateOperator.asRed(afterMove.revert(), afterMove, checkerPlay, getPly() + 1);
+            return BackgammonStateOperator.asRed(null, afterMove, checkerPlay, getPly() + 1);
         }
 
         @Override
@@ -154,13 +213,13 @@ public class BackgammonStateOperator {
 
     private static class BackgammonStateRed extends BackgammonState {
         BackgammonStateRed(BackgammonBoard board, BackgammonBoard reverted, CheckerPlay checkerPlay, int ply) {
-            super(board, reverted, board, checkerPlay, ply);
+            super(board, reverted, checkerPlay, ply);
         }
 
         @Override
         public BackgammonState withCheckerPlay(CheckerPlay checkerPlay) {
             var afterMove = getBoard().withCheckerPlay(checkerPlay);
-            return BackgammonStateOperator.asWhite(afterMove.revert(), afterMove, checkerPlay, getPly() + 1);
+            return BackgammonStateOperator.asWhite(null, afterMove, checkerPlay, getPly() + 1);
         }
 
         @Override
@@ -0,0 +1,40 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.gammon.move.Move;
+
+/**
+ * 盤面上の駒数を保持する、{@link BackgammonBoard}の下請けインターフェース
+ *
+ * <p>実装クラスはimmutableであり、ムーブの適用・反転のたびに新たなオブジェクトを返す。
+ */
+interface BoardPoints {
+    /**
+     * 指定位置の駒数を返す
+     *
+     * @param pos 位置、0からsize()-1（いずれも含む）
+     * @return 駒数、自駒は正整数で、相手駒は負整数となる
+     */
+    int getPointAt(int pos);
+
+    /**
+     * 盤面を管理する配列のサイズを返す
+     *
+     * @return 26またはボードサイズに応じた値
+     */
+    int size();
+
+    /**
+     * ムーブを順次適用した盤面を生成する
+     *
+     * @param moves 適用するムーブ、省略時は単純に同一盤面の複製となる
+     * @return 適用後の盤面
+     */
+    BoardPoints withMoves(Move... moves);
+
+    /**
+     * 反転させた盤面を生成する
+     *
+     * @return 反転させた盤面
+     */
+    BoardPoints revert();
+}
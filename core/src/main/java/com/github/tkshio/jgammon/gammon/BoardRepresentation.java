@@ -0,0 +1,33 @@
+package com.github.tkshio.jgammon.gammon;
+
+/**
+ * {@link BackgammonBoard}が内部で盤面を保持する形式
+ */
+public enum BoardRepresentation {
+    /**
+     * int配列による表現
+     */
+    intArray {
+        @Override
+        BoardPoints create(int[] initialArrangement) {
+            return IntArrayBoard.create(initialArrangement);
+        }
+    },
+    /**
+     * byte配列に詰めた表現
+     */
+    packed {
+        @Override
+        BoardPoints create(int[] initialArrangement) {
+            return ByteArrayBoard.create(initialArrangement);
+        }
+    };
+
+    /**
+     * 指定された配置で盤面を生成する
+     *
+     * @param initialArrangement 配置
+     * @return 生成された盤面
+     */
+    abstract BoardPoints create(int[] initialArrangement);
+}
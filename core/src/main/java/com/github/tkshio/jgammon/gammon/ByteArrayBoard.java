@@ -0,0 +1,74 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.gammon.move.Move;
+
+/**
+ * byte配列により盤面状態を保持する、{@link BackgammonBoard}の下請けクラス
+ *
+ * <p>各ポイントの駒数は高々±15であるため、1ポイントあたり1バイトに詰めて保持する。
+ * {@link IntArrayBoard}と比べ、ムーブ適用・反転のたびに複製される配列が1/4の大きさで済む。
+ */
+class ByteArrayBoard implements BoardPoints {
+    private final byte[] points;
+
+    private ByteArrayBoard(byte[] points) {
+        this.points = points;
+    }
+
+    /**
+     * ファクトリーメソッド
+     *
+     * @param initialArrangement 配置
+     * @return 生成されたオブジェクト
+     */
+    static ByteArrayBoard create(int[] initialArrangement) {
+        byte[] points = new byte[initialArrangement.length];
+        for (int i = 0; i < points.length; i++) {
+            int n = initialArrangement[i];
+            if (n < Byte.MIN_VALUE || Byte.MAX_VALUE < n) {
+                throw new IllegalArgumentException("Too many pieces at " + i + ": " + n);
+            }
+            points[i] = (byte) n;
+        }
+        return new ByteArrayBoard(points);
+    }
+
+    @Override
+    public ByteArrayBoard revert() {
+        int len = points.length;
+        byte[] reverted = new byte[len];
+        for (int i = 0; i < len; i++) {
+            reverted[i] = (byte) -points[len - 1 - i];
+        }
+        return new ByteArrayBoard(reverted);
+    }
+
+    @Override
+    public ByteArrayBoard withMoves(Move... moves) {
+        byte[] dupPoints = points.clone();
+        int bar = dupPoints.length - 1;
+        for (Move move : moves) {
+            int from = move.getFrom();
+            dupPoints[from]--;
+            if (!move.isBearOff()) {
+                int to = move.getTo();
+                if (move.isHit()) {
+                    dupPoints[to]++;
+                    dupPoints[bar]--;
+                }
+                dupPoints[to]++;
+            }
+        }
+        return new ByteArrayBoard(dupPoints);
+    }
+
+    @Override
+    public int size() {
+        return points.length;
+    }
+
+    @Override
+    public int getPointAt(int pos) {
+        return points[pos];
+    }
+}
@@ -7,7 +7,7 @@ import java.util.Arrays;
 /**
  * int配列により盤面状態を保持する、{@link BackgammonBoard}の下請けクラス
  */
-class IntArrayBoard {
+class IntArrayBoard implements BoardPoints {
     private final int[] points;
     private final int BAR;
 
@@ -56,6 +56,16 @@ class IntArrayBoard {
     }
 
 
+    @Override
+    public IntArrayBoard withMoves(Move... moves) {
+        return dupWithMoves(this, moves);
+    }
+
+    @Override
+    public IntArrayBoard revert() {
+        return revert(this);
+    }
+
     private void applyMove(Move move) {
         int fromPos = move.getFrom();
         int toPos = move.getTo();
@@ -75,7 +85,8 @@ class IntArrayBoard {
      *
      * @return 26またはボードサイズに応じた値
      */
-    int size() {
+    @Override
+    public int size() {
         return points.length;
     }
 
@@ -117,7 +128,8 @@ class IntArrayBoard {
      * @param pos 位置、0からsize()-1（いずれも含む）
      * @return 駒数、自駒は正整数で、相手駒は負整数となる
      */
-    int getPointAt(int pos) {
+    @Override
+    public int getPointAt(int pos) {
         return points[pos];
     }
 }
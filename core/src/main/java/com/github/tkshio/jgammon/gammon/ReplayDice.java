@@ -0,0 +1,61 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.gammon.move.Roll;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 出目を記録し、同じ出目の対局を繰り返すための{@link BackgammonDice}
+ *
+ * <p>最初の{@link #rollOpening()}以降の出目を元のダイスから得て記録し、二回目以降の{@link #rollOpening()}では
+ * 記録した出目を最初から再生する。記録を超えて出目が必要になった場合は、元のダイスから続きを得て記録に加えるので、
+ * 何度繰り返しても、同じ位置には同じ出目が現れる。
+ *
+ * <p>色と先手を入れ替えて同じ出目で2局を行う、デュプリケート形式の対局に使用する。
+ * スレッドセーフではないので、繰り返す対局は順に実行する。
+ */
+public class ReplayDice implements BackgammonDice {
+    private final BackgammonDice dice;
+    private final List<Roll> history = new ArrayList<>();
+    private OpeningRoll openingRoll = null;
+    private int position = 0;
+
+    private ReplayDice(BackgammonDice dice) {
+        this.dice = dice;
+    }
+
+    /**
+     * ファクトリーメソッド
+     *
+     * @param dice 出目を生成する元のダイス
+     * @return 生成されたオブジェクト
+     */
+    public static ReplayDice create(BackgammonDice dice) {
+        return new ReplayDice(dice);
+    }
+
+    @Override
+    public OpeningRoll rollOpening() {
+        if (openingRoll == null) {
+            openingRoll = dice.rollOpening();
+        }
+        // 再生位置を先頭に戻す
+        position = 0;
+        return openingRoll;
+    }
+
+    @Override
+    public Collection<Roll> listupRolls() {
+        return dice.listupRolls();
+    }
+
+    @Override
+    public Roll roll() {
+        if (position == history.size()) {
+            history.add(dice.roll());
+        }
+        return history.get(position++);
+    }
+}
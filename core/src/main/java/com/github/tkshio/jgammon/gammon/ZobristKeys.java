@@ -0,0 +1,98 @@
+package com.github.tkshio.jgammon.gammon;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link BackgammonBoard}のハッシュ値を算出するための、Zobristハッシュのキー表
+ *
+ * <p>盤面のハッシュ値は、各ポイントposの駒数countについて{@code key(pos, count)}をXORしたものとして定義される。
+ * キーは盤面の大きさ（すなわちBGType）・位置・駒数だけから決まる固定値であり、実行ごとに変わることはない。
+ * 駒数0のキーは0なので、空のポイントはハッシュ値に影響しない。
+ */
+final class ZobristKeys {
+    private static final long SEED = 0x6A09E667F3BCC909L;
+    // 表として保持する駒数の範囲、これを超える駒数はその都度算出する
+    private static final int RANGE = 16;
+    private static final int WIDTH = RANGE * 2 + 1;
+    private static final ConcurrentMap<Integer, ZobristKeys> keysBySize = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final long[] table;
+
+    private ZobristKeys(int size) {
+        this.size = size;
+        this.table = new long[size * WIDTH];
+        for (int pos = 0; pos < size; pos++) {
+            for (int count = -RANGE; count <= RANGE; count++) {
+                table[pos * WIDTH + count + RANGE] = compute(size, pos, count);
+            }
+        }
+    }
+
+    /**
+     * 指定された大きさの盤面に対するキー表を返す
+     *
+     * @param size バーポイントを含めたポイントの総数、64以下
+     * @return キー表
+     */
+    static ZobristKeys of(int size) {
+        if (size > Long.SIZE) {
+            throw new IllegalArgumentException("Board too large: " + size);
+        }
+        return keysBySize.computeIfAbsent(size, ZobristKeys::new);
+    }
+
+    /**
+     * 指定位置・駒数に対するキーを返す
+     *
+     * @param pos   位置
+     * @param count 駒数
+     * @return キー
+     */
+    long key(int pos, int count) {
+        if (-RANGE <= count && count <= RANGE) {
+            return table[pos * WIDTH + count + RANGE];
+        }
+        return compute(size, pos, count);
+    }
+
+    /**
+     * 盤面全体のハッシュ値を算出する
+     *
+     * @param points 対象盤面
+     * @return ハッシュ値
+     */
+    long hash(BoardPoints points) {
+        long hash = 0;
+        for (int pos = 0; pos < size; pos++) {
+            hash ^= key(pos, points.getPointAt(pos));
+        }
+        return hash;
+    }
+
+    /**
+     * 反転させた盤面のハッシュ値を、反転させずに算出する
+     *
+     * @param points 対象盤面
+     * @return 反転させた盤面のハッシュ値
+     */
+    long revertedHash(BoardPoints points) {
+        long hash = 0;
+        for (int pos = 0; pos < size; pos++) {
+            hash ^= key(size - 1 - pos, -points.getPointAt(pos));
+        }
+        return hash;
+    }
+
+    // SplitMix64のmix関数により、(size, pos, count)からキーを生成する
+    private static long compute(int size, int pos, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        long z = SEED + ((long) size << 40) + ((long) pos << 20) + (count & 0xFFFFF);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
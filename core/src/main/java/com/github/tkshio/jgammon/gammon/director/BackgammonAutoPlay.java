@@ -1,16 +1,26 @@
 package com.github.tkshio.jgammon.gammon.director;
 
 import com.github.tkshio.jgammon.common.context.GameContextHandler;
-import com.github.tkshio.jgammon.common.context.GameContextHandler.TebanContextHandler;
+import com.github.tkshio.jgammon.common.context.RecordingGameContextHandler;
 import com.github.tkshio.jgammon.common.director.*;
 import com.github.tkshio.jgammon.common.utils.RWTuple;
 import com.github.tkshio.jgammon.common.utils.SGTuple;
 import com.github.tkshio.jgammon.gammon.*;
+import com.github.tkshio.jgammon.gammon.move.Roll;
 import com.github.tkshio.jgammon.gammon.utils.BackgammonScoreStat;
+import com.github.tkshio.jgammon.gammon.utils.PairedScoreStat;
 import lombok.Builder;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.IntSummaryStatistics;
-import java.util.function.BiFunction;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
@@ -40,6 +50,62 @@ public class BackgammonAutoPlay {
     @Builder.Default
     private final int maxTurn = 200;
 
+    /**
+     * 同一の盤面に至る候補手を一つにまとめる場合は真
+     */
+    @Builder.Default
+    private final boolean distinctPlays = false;
+
+    /**
+     * 対局を並列に実行するスレッドプール、nullなら1局ずつ順に実行する
+     *
+     * <p>並列に実行する場合、プレイヤーは複数の対局から同時に使用されるので、学習を行わないものに限る。
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * 並列に実行する場合と、デュプリケート形式の場合に、対局番号から、その対局で使用するダイスを生成する関数
+     *
+     * <p>ダイスは対局ごとに生成されるので、{@code bgDice}は使用されない。デュプリケート形式では、組の1局目の対局番号で生成したダイスを2局で共有する
+     * （1局ずつ順に実行する場合も同じ）。
+     * {@link com.github.tkshio.jgammon.common.dice.SplittableDice SplittableDice}を対局番号から生成すれば、
+     * 実行順序によらず再現可能な結果が得られる。
+     */
+    @Builder.Default
+    private final IntFunction<BackgammonDice> diceFactory = gameNo -> BackgammonDice.create();
+
+    /**
+     * 並列に実行する場合に、結果の通知を待たずに先行して実行する対局数の上限（スレッド数に対する倍率）
+     */
+    @Builder.Default
+    private final int lookAhead = 4;
+
+    /**
+     * デュプリケート形式で対局する場合は真
+     *
+     * <p>2局を1組とし、2局目は1局目と同じ出目で、プレイヤーの色（したがって先手）を入れ替えて対局する。
+     * 出目は{@link ReplayDice}で再生する。組ごとの得失点の差を{@link PairedScoreStat}で集計し、結果に出力する。
+     */
+    @Builder.Default
+    private final boolean duplicate = false;
+
+    /**
+     * 対局を打ち切る条件
+     *
+     * <p>対局（デュプリケート形式では1組）の結果を通知するごとに評価し、真であれば残りの対局を打ち切る。
+     * {@link com.github.tkshio.jgammon.common.context.SPRTGameContextHandler SPRTGameContextHandler}のように、
+     * {@code contextHandler}に通知された結果を集計するものと組み合わせて使用する。
+     */
+    @Builder.Default
+    private final BooleanSupplier stopCondition = () -> false;
+
+    /**
+     * 集計結果に加えるテキストを返す関数、nullなら何も加えない
+     *
+     * <p>{@code stopCondition}に使用した検定の判定などを、集計結果とともに{@code contextHandler}に通知する。
+     */
+    private final Supplier<String> summary;
+
     /**
      * N回対局を繰り返す
      *
@@ -52,140 +118,332 @@ public class BackgammonAutoPlay {
     /**
      * fromで指定された開始番号番号からn回対局を繰り返す
      *
+     * <p>{@code pool}が指定されていれば、対局を並列に実行する。その場合も、結果の集計と
+     * {@link GameContextHandler}への通知は対局番号順に、1局ずつ順に実行した場合と同じ順序で行われる。
+     *
+     * <p>{@code stopCondition}が真になれば、n回に満たなくても終了する。
+     *
      * @param fromInclusive 開始番号
-     * @param n             対局回数
+     * @param n             対局回数、デュプリケート形式の場合は偶数
      */
     public void run(int fromInclusive, int n) {
-        // 対局番号を用意、記録
-        IntStream nums = IntStream.range(fromInclusive, fromInclusive + n);
-        contextHandler.startTrials(fromInclusive, n);
+        if (duplicate && n % 2 != 0) {
+            throw new IllegalArgumentException("n must be even in duplicate mode: " + n);
+        }
 
+        // 対局番号を用意、記録（デュプリケート形式では、2局ずつ組にする）
+        int step = duplicate ? 2 : 1;
+        IntStream nums = IntStream.iterate(fromInclusive, i -> i < fromInclusive + n, i -> i + step);
+        contextHandler.startTrials(fromInclusive, n);
 
-        // 手番の長さの統計を取る
-        IntSummaryStatistics plysStat = new IntSummaryStatistics();
-
-        // プレイヤーおよびそれぞれの結果集計の準備
-        RWTuple<Player<BackgammonState>> players = RWTuple.of(red, white);
-        RWTuple<BackgammonScoreStat> scoreStats = RWTuple.from(BackgammonScoreStat::new);
-        RWTuple<BiFunction<GameInfo, BackgammonState, GameInfo>> statCouners =
-                RWTuple.of(scoreStats, stat -> (info, state) -> {
-                    plysStat.accept(state.getPly());
-                    stat.add(state.getResult());
-
-                    // 結果出力用に、スコアを更新したGameInfoを生成する
-                    return new GameInfo(
-                            info.getGameNo(),
-                            RWTuple.of(scoreStats, BackgammonScoreStat::getPoint),
-                            RWTuple.of(players, Player::getName)
-                    );
-                });
+        var trials = new Trials();
 
         // 対局の実施
-        nums.sequential().forEachOrdered(i -> {
-            var gameInfo = new GameInfo(
-                    i,
-                    RWTuple.of(scoreStats, BackgammonScoreStat::getPoint),
-                    RWTuple.of(players, Player::getName));
-
-            runGame(gameInfo,
-                    dConf,
-                    players,
-                    statCouners
-            );
-        });
+        if (pool == null) {
+            PrimitiveIterator.OfInt it = nums.iterator();
+            while (it.hasNext() && !trials.stopped) {
+                int i = it.nextInt();
+                // デュプリケート形式では、並列に実行する場合と同じく組ごとにダイスを生成する
+                var dice = duplicate ? ReplayDice.create(diceFactory.apply(i)) : bgDice;
+                for (int j = 0; j < step; j++) {
+                    var game = setupGame(dice, j == 1);
+                    var info = trials.gameInfo(i + j, game);
+                    contextHandler.startGame(info, game.initialState);
+                    var finalState = game.play(contextHandler);
+                    trials.notifyResult(info, game, finalState);
+                }
+                trials.checkStop();
+            }
+        } else {
+            runParallel(nums, step, trials);
+        }
 
         // 結果の出力
-        long trials = plysStat.getCount();
-        contextHandler.endTrials(trials,
-                red.getName(), scoreStats.red().getPoint(),
-                white.getName(), scoreStats.white().getPoint(),
-                String.format("%15s %s", red.getName(), scoreStats.red().summarize(trials)),
-                String.format("%15s %s", white.getName(), scoreStats.white().summarize(trials)),
-                "",
-                "Plys statistics:" + plysStat.toString()
-        );
+        trials.endTrials(n);
     }
 
     /**
-     * 1ゲームの実行
+     * 対局を並列に実行し、対局番号順に結果を通知する
+     *
+     * <p>各対局の進行は{@link RecordingGameContextHandler}に記録しておき、対局番号順に、
+     * 開始の通知、記録した進行の再生、結果の集計と通知を行う。デュプリケート形式の2局は、同じタスクで順に実行する。
      *
-     * @param info           対局番号、スコアなどの記録
-     * @param dConf          ルール、先読みの深さなどの設定情報
-     * @param players        対局を行うプレイヤーの対
-     * @param resultHandlers 結果格納のためのコールバック先
+     * @param nums   各組の先頭の対局番号
+     * @param step   1組の対局数
+     * @param trials 結果の集計先
      */
-    private void runGame(GameInfo info,
-                         BackgammonDirectorConf dConf,
-                         RWTuple<Player<BackgammonState>> players,
-                         RWTuple<BiFunction<GameInfo, BackgammonState, GameInfo>> resultHandlers) {
+    private void runParallel(IntStream nums, int step, Trials trials) {
+        // 記録を保持しておく対局数を抑えるため、先行して実行する対局数を制限する
+        int window = Math.max(1, pool.getParallelism() * lookAhead);
+        Deque<ForkJoinTask<List<PlayedGame>>> running = new ArrayDeque<>();
+        PrimitiveIterator.OfInt it = nums.iterator();
+
+        while ((it.hasNext() || !running.isEmpty()) && !trials.stopped) {
+            while (it.hasNext() && running.size() < window) {
+                int i = it.nextInt();
+                running.add(pool.submit(() -> {
+                    var dice = duplicate ? ReplayDice.create(diceFactory.apply(i)) : diceFactory.apply(i);
+                    List<PlayedGame> playedGames = new ArrayList<>(step);
+                    for (int j = 0; j < step; j++) {
+                        var game = setupGame(dice, j == 1);
+                        var recorder = new RecordingGameContextHandler<BackgammonState>();
+                        var finalState = game.play(recorder);
+                        playedGames.add(new PlayedGame(i + j, game, recorder, finalState));
+                    }
+                    return playedGames;
+                }));
+            }
 
-        // StateOperatorの生成
-        var stateOperator = BackgammonStateOperator.create(bgDice);
+            // 先頭の対局の終了を待って、結果を通知する
+            for (var played : running.remove().join()) {
+                var info = trials.gameInfo(played.gameNo, played.game);
+                contextHandler.startGame(info, played.game.initialState);
+                played.recorder.replay(contextHandler);
+                trials.notifyResult(info, played.game, played.finalState);
+            }
+            trials.checkStop();
+        }
 
-        // OpeningRollを振って、先手・後手を決定する
-        SGTuple<Player<BackgammonState>> sgPlayers;
-        SGTuple<TebanContextHandler<BackgammonState>> sgLoggers;
-        SGTuple<BiFunction<GameInfo, BackgammonState, GameInfo>> sgResultHandlers;
+        // 打ち切った場合、未着手の対局は実行しない
+        running.forEach(task -> task.cancel(false));
+    }
 
-        BackgammonState initialState;
+    /**
+     * 対局の準備を行う
+     *
+     * @param dice    対局で使用するダイス
+     * @param swapped プレイヤーの色を入れ替える場合は真
+     * @return 準備された対局
+     */
+    private Game setupGame(BackgammonDice dice, boolean swapped) {
+        // StateOperatorの生成
+        var stateOperator = BackgammonStateOperator.create(dice, distinctPlays);
 
+        // OpeningRollを振って、先手・後手を決定する
         BackgammonDice.OpeningRoll openingRoll =
                 stateOperator.generateOpeningRoll();
-        if (openingRoll.firstDiceIsHigher()) {
-            initialState = stateOperator.redGoesFirst(initialBoard.get());
-            sgPlayers = players.redGoesFirst();
-            sgLoggers = contextHandler.redGoesFirst();
-            sgResultHandlers = resultHandlers.redGoesFirst();
-        } else {
-            initialState = stateOperator.whiteGoesFirst(initialBoard.get());
-            sgPlayers = players.whiteGoesFirst();
-            sgLoggers = contextHandler.whiteGoesFirst();
-            sgResultHandlers = resultHandlers.whiteGoesFirst();
+        boolean redGoesFirst = openingRoll.firstDiceIsHigher();
+        BackgammonState initialState = redGoesFirst
+                ? stateOperator.redGoesFirst(initialBoard.get())
+                : stateOperator.whiteGoesFirst(initialBoard.get());
+
+        return new Game(stateOperator, openingRoll.asRoll(), redGoesFirst, swapped, initialState);
+    }
+
+    /**
+     * 一連の対局の結果の集計
+     */
+    private class Trials {
+        // 手番の長さの統計を取る
+        private final IntSummaryStatistics plysStat = new IntSummaryStatistics();
+
+        // プレイヤー別（red、whiteに指定されたプレイヤーの順）の結果集計
+        private final RWTuple<BackgammonScoreStat> scoreStats = RWTuple.from(BackgammonScoreStat::new);
+
+        // デュプリケート形式での、whiteに指定されたプレイヤーの観点での組ごとの集計
+        private final PairedScoreStat pairedStat = new PairedScoreStat();
+        private int firstOfPair = 0;
+
+        // 通知済みの対局数（中断を含む）と、打ち切りの有無
+        private int played = 0;
+        private boolean stopped = false;
+
+        /**
+         * 現時点のスコアを反映したGameInfoを生成する
+         *
+         * @param gameNo 対局番号
+         * @param game   対局
+         * @return 生成されたGameInfo
+         */
+        GameInfo gameInfo(int gameNo, Game game) {
+            return new GameInfo(
+                    gameNo,
+                    RWTuple.of(game.rw(scoreStats), BackgammonScoreStat::getPoint),
+                    RWTuple.of(game.players(), Player::getName));
         }
 
-        // Directorに先手・後手の各プレイヤーと、オープニングロールを通知
-        var director = dConf.configuredBuilder(
-                stateOperator, openingRoll.asRoll(), initialState)
-                .nodesEvaluators(SGTuple.of(
-                        sgPlayers.sente().createEvaluators().sente(),
-                        sgPlayers.gote().createEvaluators().gote())
-                )
-                .contextHandlers(sgLoggers)
-                .build();
-
-        var runner = GameRunner.create(director);
-
-        // 対局開始
-        contextHandler.startGame(info, initialState);
-        var finalState = GameRunner.run(runner, maxTurn);
-
-        // 結果の通知
-        var state = finalState.getState();
-        finalState.getResult().accept(new GameResult.Acceptor() {
-            @Override
-            public void senteWon() {
-                var after = sgResultHandlers.sente().apply(info, state);
-
-                var winner = sgPlayers.sente();
-                var loser = sgPlayers.gote();
-                sgLoggers.sente().won(after, winner, loser, state);
-            }
+        /**
+         * 対局結果を集計し、通知する
+         *
+         * @param info       対局番号、スコアなどの記録
+         * @param game       終了した対局
+         * @param finalState 対局の最終状態
+         */
+        void notifyResult(GameInfo info,
+                          Game game,
+                          GameRunner.GameFinalState<BackgammonState> finalState) {
+            var sgPlayers = game.sg(game.players());
+            var sgLoggers = game.sg(contextHandler);
+            var sgStats = game.sg(game.rw(scoreStats));
+            played++;
+
+            // 結果の通知
+            var state = finalState.getState();
+            finalState.getResult().accept(new GameResult.Acceptor() {
+                @Override
+                public void senteWon() {
+                    var after = countUp(info, game, sgStats.sente(), game.redGoesFirst, state);
+
+                    var winner = sgPlayers.sente();
+                    var loser = sgPlayers.gote();
+                    sgLoggers.sente().won(after, winner, loser, state);
+                }
+
+                @Override
+                public void goteWon() {
+                    var after = countUp(info, game, sgStats.gote(), !game.redGoesFirst, state);
+
+                    var winner = sgPlayers.gote();
+                    var loser = sgPlayers.sente();
+                    sgLoggers.gote().won(after, winner, loser, state);
+                }
+
+                @Override
+                public void abort() {
+                    addToPair(game, 0);
+                    contextHandler.abortGame(state);
+                }
+            });
+        }
+
+        // 勝者の結果を集計し、スコアを更新したGameInfoを生成する
+        private GameInfo countUp(GameInfo info, Game game, BackgammonScoreStat stat,
+                                 boolean redWon, BackgammonState state) {
+            plysStat.accept(state.getPly());
+            stat.add(state.getResult());
 
-            @Override
-            public void goteWon() {
-                var after = sgResultHandlers.gote().apply(info, state);
+            // whiteに指定されたプレイヤーは、色を入れ替えた対局ではredを持つ
+            int point = state.getResult().getPoint();
+            addToPair(game, (redWon == game.swapped) ? point : -point);
 
-                var winner = sgPlayers.gote();
-                var loser = sgPlayers.sente();
-                sgLoggers.gote().won(after, winner, loser, state);
+            // 結果出力用に、スコアを更新したGameInfoを生成する
+            return gameInfo(info.getGameNo(), game);
+        }
+
+        private void addToPair(Game game, int point) {
+            if (!duplicate) {
+                return;
+            }
+            if (game.swapped) {
+                pairedStat.add(firstOfPair, point);
+            } else {
+                firstOfPair = point;
             }
+        }
 
-            @Override
-            public void abort() {
-                contextHandler.abortGame(state);
+        /**
+         * 打ち切りの条件を評価する
+         */
+        void checkStop() {
+            stopped = stopCondition.getAsBoolean();
+        }
+
+        /**
+         * 集計結果を通知する
+         *
+         * @param n 予定していた対局回数
+         */
+        void endTrials(int n) {
+            long trials = plysStat.getCount();
+            List<String> msgs = new ArrayList<>(List.of(
+                    String.format("%15s %s", red.getName(), scoreStats.red().summarize(trials)),
+                    String.format("%15s %s", white.getName(), scoreStats.white().summarize(trials)),
+                    "",
+                    "Plys statistics:" + plysStat.toString()));
+            if (duplicate) {
+                msgs.add(String.format("Duplicate(%s): %s", white.getName(), pairedStat.summarize()));
+            }
+            if (summary != null) {
+                msgs.add(summary.get());
+            }
+            if (stopped) {
+                msgs.add(String.format("Stopped after %d of %d games", played, n));
             }
-        });
+            contextHandler.endTrials(trials,
+                    red.getName(), scoreStats.red().getPoint(),
+                    white.getName(), scoreStats.white().getPoint(),
+                    msgs.toArray(new String[0])
+            );
+        }
+    }
+
+    /**
+     * 1ゲーム分の、先手・後手の決定済みの対局
+     */
+    private class Game {
+        private final BackgammonStateOperator stateOperator;
+        private final Roll openingRoll;
+        private final boolean redGoesFirst;
+        private final boolean swapped;
+        private final BackgammonState initialState;
+
+        Game(BackgammonStateOperator stateOperator, Roll openingRoll,
+             boolean redGoesFirst, boolean swapped, BackgammonState initialState) {
+            this.stateOperator = stateOperator;
+            this.openingRoll = openingRoll;
+            this.redGoesFirst = redGoesFirst;
+            this.swapped = swapped;
+            this.initialState = initialState;
+        }
+
+        // プレイヤー別（red、whiteに指定されたプレイヤーの順）の対を、この対局での色別の対に読み替える
+        <T> RWTuple<T> rw(RWTuple<T> byPlayer) {
+            return swapped ? RWTuple.of(byPlayer.white(), byPlayer.red()) : byPlayer;
+        }
+
+        // この対局での色別のプレイヤー
+        RWTuple<Player<BackgammonState>> players() {
+            return rw(RWTuple.of(red, white));
+        }
 
+        // 先手・後手に読み替える
+        <T> SGTuple<T> sg(RWTuple<T> rw) {
+            return redGoesFirst ? rw.redGoesFirst() : rw.whiteGoesFirst();
+        }
+
+        /**
+         * 対局を実行する
+         *
+         * @param contextHandler 対局の進行の通知先
+         * @return 対局の最終状態
+         */
+        GameRunner.GameFinalState<BackgammonState> play(GameContextHandler<BackgammonState> contextHandler) {
+            SGTuple<Player<BackgammonState>> sgPlayers = sg(players());
+
+            // Directorに先手・後手の各プレイヤーと、オープニングロールを通知
+            var director = dConf.configuredBuilder(
+                    stateOperator, openingRoll, initialState)
+                    .nodesEvaluators(SGTuple.of(
+                            sgPlayers.sente().createEvaluators().sente(),
+                            sgPlayers.gote().createEvaluators().gote())
+                    )
+                    .contextHandlers(sg(contextHandler))
+                    .build();
+
+            var runner = GameRunner.create(director);
+
+            // 対局開始
+            return GameRunner.run(runner, maxTurn);
+        }
+    }
+
+    /**
+     * 並列に実行された、結果の通知待ちの対局
+     */
+    private class PlayedGame {
+        private final int gameNo;
+        private final Game game;
+        private final RecordingGameContextHandler<BackgammonState> recorder;
+        private final GameRunner.GameFinalState<BackgammonState> finalState;
+
+        PlayedGame(int gameNo, Game game,
+                   RecordingGameContextHandler<BackgammonState> recorder,
+                   GameRunner.GameFinalState<BackgammonState> finalState) {
+            this.gameNo = gameNo;
+            this.game = game;
+            this.recorder = recorder;
+            this.finalState = finalState;
+        }
     }
 
     /**
@@ -44,12 +44,35 @@ public interface BackgammonDirectorConf {
      * @return 生成されたBackgammonDirectorConf
      */
     static BackgammonDirectorConf twoPlyDirectorConf() {
+        return twoPlyDirectorConf(false);
+    }
+
+    /**
+     * 2Ply、自分が可能な手に加え、それに対応する相手の応手も
+     * プレイヤーに提供するDirectorを構成するConfを生成する
+     *
+     * <p>reuseTreeが真の場合、先読みで生成した局面を保持し、次の手番以降でそのまま使用する。
+     * 実際のロールと選ばれた手に対応する部分のツリーが引き継がれるので、次の手番の候補手と、
+     * その先読みですでに生成済みの局面は生成し直さない。評価値の再利用には、評価器を
+     * {@link com.github.tkshio.jgammon.common.evaluator.CachedStateEvaluator CachedStateEvaluator}でラップする。
+     *
+     * @param reuseTree 先読みで生成した局面を次の手番以降で再利用する場合は真
+     * @return 生成されたBackgammonDirectorConf
+     */
+    static BackgammonDirectorConf twoPlyDirectorConf(boolean reuseTree) {
         return (stateOperator, openingRoll, initialState) -> {
-            var nsp = twoPlyNextStateProvider(stateOperator);
+            var nsp = twoPlyNextStateProvider();
 
             return builder(nsp,
-                    node -> node.grow(
+                    node -> reuseTree
+                            ? node.growRetaining(
                             Collections.singleton(openingRoll),
+                            stateOperator.listupRolls(),
+                            stateOperator::generateRoll,
+                            stateOperator::buildNextState)
+                            : node.growOnDemand(
+                            Collections.singleton(openingRoll),
+                            stateOperator.listupRolls(),
                             stateOperator::generateRoll,
                             stateOperator::buildNextState),
 
@@ -123,23 +146,12 @@ public interface BackgammonDirectorConf {
     }
 
     private static ChildStatesProvider<IndexedStateNode<BackgammonState, Roll>>
-    twoPlyNextStateProvider(BackgammonStateOperator stateOperator) {
-        // BuildAheadProviderでは、次局面の取得方法と、
-        // ノードの成長のさせ方を指定する
-
-        return ChildStatesProvider.createBuildAheadProvider(
-                // 次局面のノードを提供するメソッド
-                IndexedStateNode::getNextStates,
-
-                // 末端ノードを延ばすときの処理
-                _node -> _node.grow(
-                        // ありうるロール（21通り）を列挙
-                        stateOperator.listupRolls(),
-                        // 次の局面を選ぶ際にはロールを行う
-                        stateOperator::generateRoll,
-                        // 実際に次の局面を生成するメソッド
-                        stateOperator::buildNextState)
-        );
+    twoPlyNextStateProvider() {
+        // 初期ノードをgrowOnDemand（またはgrowRetaining）で構成しているので、各ノードは子局面（相手の応手）を
+        // 参照されたときに生成する。したがって、ここではロールを行って次局面を返すだけでよく、
+        // 候補手ごとの先読みは評価の際に1つずつ行われ、評価が済めば破棄される
+        // （growRetainingの場合は保持され、次の手番で再利用される）
+        return IndexedStateNode::getNextStates;
     }
 
     /**
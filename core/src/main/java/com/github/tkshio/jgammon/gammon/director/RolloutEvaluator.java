@@ -0,0 +1,292 @@
+package com.github.tkshio.jgammon.gammon.director;
+
+import com.github.tkshio.jgammon.common.evaluator.Eval;
+import com.github.tkshio.jgammon.common.evaluator.StateEvaluator;
+import com.github.tkshio.jgammon.common.utils.SGTuple;
+import com.github.tkshio.jgammon.gammon.BackgammonDice;
+import com.github.tkshio.jgammon.gammon.BackgammonState;
+import com.github.tkshio.jgammon.gammon.BackgammonStateOperator;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import com.github.tkshio.jgammon.gammon.utils.PairedScoreStat;
+import lombok.Builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * ロールアウト（モンテカルロ法）によって局面を評価する{@link StateEvaluator}
+ *
+ * <p>評価対象の局面から、ダイスを振って{@code evs}による1Plyの最善手を双方が選ぶ対局を{@code trials}回行い、
+ * 結果の平均を評価値とする。{@code truncation}手で打ち切った場合は、その時点の局面の{@code evs}による評価値を結果とする。
+ * 評価値は、他の評価器と同じく、評価対象の局面を作った（直前に指した）側の観点で、勝ち点を単位とする。
+ *
+ * <p>分散を減らすため、次の二つを行う。
+ * <ul>
+ * <li>各試行の最初のロールは乱数ではなく、36通りの目を順に割り当てる（試行回数が36の倍数なら、偏りがなくなる）</li>
+ * <li>{@code varianceReduction}が真の場合、各手番で、実際のロールの最善手の評価値とすべてのロールについての期待値との差（ツキ）を
+ * 累積し、結果から差し引く（評価器が正確であれば、ツキの期待値は0なので、平均は変わらず分散だけが減る）</li>
+ * </ul>
+ *
+ * <p>試行は{@code pool}で並列に行う。評価器は学習を行わないものを使用すること。
+ */
+@Builder
+public class RolloutEvaluator implements StateEvaluator<BackgammonState> {
+    /**
+     * 手の選択と、打ち切った局面の評価に使用する評価器の対
+     *
+     * <p>先手が指した直後の局面（plyが奇数）は先手用、後手が指した直後の局面は後手用の評価器で評価する。
+     */
+    private final SGTuple<StateEvaluator<BackgammonState>> evs;
+
+    /**
+     * 次局面の生成に使用するオブジェクト
+     */
+    @Builder.Default
+    private final BackgammonStateOperator stateOperator =
+            BackgammonStateOperator.create(BackgammonDice.create(), true);
+
+    /**
+     * 試行回数
+     */
+    @Builder.Default
+    private final int trials = 144;
+
+    /**
+     * 打ち切るまでの手数、0なら対局の終了まで進める
+     */
+    @Builder.Default
+    private final int truncation = 0;
+
+    /**
+     * ツキによる補正を行うかどうか
+     */
+    @Builder.Default
+    private final boolean varianceReduction = true;
+
+    /**
+     * 乱数のシード、同じシードからは同じ評価値が得られる
+     */
+    @Builder.Default
+    private final long seed = new Random().nextLong();
+
+    /**
+     * 試行を並列に実行するスレッドプール、既定値は共通プール
+     */
+    @Builder.Default
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    @Override
+    public RolloutEval eval(BackgammonState state) {
+        if (trials < 2) {
+            throw new IllegalStateException("trials must be at least 2: " + trials);
+        }
+        if (state.getResult().isOver()) {
+            // 直前に指した側の勝ちで確定している
+            double point = state.getResult().getPoint();
+            return new RolloutEval(point, 0, trials);
+        }
+
+        double[] results = pool.submit(() -> IntStream.range(0, trials)
+                .parallel()
+                .mapToDouble(trial -> rollout(state, trial))
+                .toArray())
+                .join();
+
+        double sum = 0;
+        for (double r : results) {
+            sum += r;
+        }
+        double mean = sum / trials;
+        double sqSum = 0;
+        for (double r : results) {
+            sqSum += (r - mean) * (r - mean);
+        }
+        double standardError = Math.sqrt(sqSum / (trials - 1) / trials);
+        return new RolloutEval(mean, standardError, trials);
+    }
+
+    /**
+     * 1回の試行を行う
+     *
+     * @param state 評価対象の局面
+     * @param trial 試行の番号
+     * @return 評価対象の局面を作った側の観点での結果（ツキの補正後）
+     */
+    private double rollout(BackgammonState state, int trial) {
+        // 試行ごとに独立した乱数系列を使う
+        SplittableRandom random = new SplittableRandom(seed + trial * 0x9E3779B97F4A7C15L);
+
+        BackgammonState current = state;
+        double luck = 0;
+        for (int ply = 0; ; ply++) {
+            // 評価対象の局面を作った側から見た、currentを作った側の符号
+            double sign = (ply % 2 == 0) ? 1 : -1;
+
+            if (current.getResult().isOver()) {
+                return sign * current.getResult().getPoint() - luck;
+            }
+            if (truncation > 0 && ply >= truncation) {
+                return sign * value(current) - luck;
+            }
+
+            // 最初のロールは、36通りの目を試行ごとに順に割り当てる
+            Roll roll = (ply == 0)
+                    ? Roll.of(trial % 36 / 6 + 1, trial % 6 + 1)
+                    : Roll.of(random.nextInt(6) + 1, random.nextInt(6) + 1);
+
+            BackgammonState next;
+            if (varianceReduction) {
+                // すべてのロールについて最善手の評価値を求め、実際のロールとの差をツキとする
+                double expected = 0;
+                double wSum = 0;
+                double actual = 0;
+                next = null;
+                for (Roll r : stateOperator.listupRolls()) {
+                    var best = bestMove(current, r);
+                    expected += best.value * r.getWeight();
+                    wSum += r.getWeight();
+                    if (r.equals(roll)) {
+                        actual = best.value;
+                        next = best.state;
+                    }
+                }
+                // 手番側（currentを作った側の相手）にとってのツキなので、符号を反転させる
+                luck += -sign * (actual - expected / wSum);
+            } else {
+                next = bestMove(current, roll).state;
+            }
+            current = next;
+        }
+    }
+
+    /**
+     * 指定のロールに対する最善手を選ぶ
+     *
+     * @param state 現局面
+     * @param roll  ロール
+     * @return 最善手の局面と、その評価値（手番側の観点）
+     */
+    private Choice bestMove(BackgammonState state, Roll roll) {
+        Collection<BackgammonState> nextStates = stateOperator.buildNextState(state, roll);
+        List<BackgammonState> inGame = new ArrayList<>();
+
+        Choice best = null;
+        for (BackgammonState next : nextStates) {
+            if (next.getResult().isOver()) {
+                double point = next.getResult().getPoint();
+                if (best == null || point > best.value) {
+                    best = new Choice(next, point);
+                }
+            } else {
+                inGame.add(next);
+            }
+        }
+
+        if (!inGame.isEmpty()) {
+            List<Eval> evals = evFor(inGame.get(0)).evalAll(inGame);
+            for (int i = 0; i < evals.size(); i++) {
+                double value = evals.get(i).getScore();
+                if (best == null || value > best.value) {
+                    best = new Choice(inGame.get(i), value);
+                }
+            }
+        }
+
+        if (best == null) {
+            throw new IllegalStateException("no moves for " + roll);
+        }
+        return best;
+    }
+
+    // 局面を作った側の観点での評価値
+    private double value(BackgammonState state) {
+        return evFor(state).eval(state).getScore();
+    }
+
+    // 先手が指した直後の局面（plyが奇数）は先手用、それ以外は後手用の評価器を使う
+    private StateEvaluator<BackgammonState> evFor(BackgammonState state) {
+        return (state.getPly() % 2 == 1) ? evs.sente() : evs.gote();
+    }
+
+    // 選んだ手の局面と、その評価値
+    private static class Choice {
+        final BackgammonState state;
+        final double value;
+
+        Choice(BackgammonState state, double value) {
+            this.state = state;
+            this.value = value;
+        }
+    }
+
+    /**
+     * ロールアウトの結果、平均値とその標準誤差を保持する
+     */
+    public static class RolloutEval implements Eval {
+        private final double mean;
+        private final double standardError;
+        private final int trials;
+
+        RolloutEval(double mean, double standardError, int trials) {
+            this.mean = mean;
+            this.standardError = standardError;
+            this.trials = trials;
+        }
+
+        /**
+         * 平均値を返す
+         *
+         * @return 平均値
+         */
+        @Override
+        public double getScore() {
+            return mean;
+        }
+
+        /**
+         * 平均値の標準誤差を返す
+         *
+         * @return 標準誤差
+         */
+        public double getStandardError() {
+            return standardError;
+        }
+
+        /**
+         * 試行回数を返す
+         *
+         * @return 試行回数
+         */
+        public int getTrials() {
+            return trials;
+        }
+
+        /**
+         * 95%信頼区間の下限を返す
+         *
+         * @return 下限
+         */
+        public double getLowerBound() {
+            return mean - PairedScoreStat.Z_95 * standardError;
+        }
+
+        /**
+         * 95%信頼区間の上限を返す
+         *
+         * @return 上限
+         */
+        public double getUpperBound() {
+            return mean + PairedScoreStat.Z_95 * standardError;
+        }
+
+        @Override
+        public String asString() {
+            return String.format("%.3f ± %.3f (%d trials)", mean, PairedScoreStat.Z_95 * standardError, trials);
+        }
+    }
+}
@@ -33,6 +33,13 @@ public interface BGBoard {
      */
     int getBearOffPos();
 
+    /**
+     * インナーボードの開始点を返す
+     *
+     * @return 19、またはボードサイズに応じた値
+     */
+    int getInnerPos();
+
 
     /**
      * ベアリングオフ可能な状態かどうか
@@ -16,10 +16,23 @@ import java.util.stream.Stream;
 @EqualsAndHashCode
 public class CheckerPlay {
     private final static Roll ZERO = Roll.of(0, 0, ""); // 初期盤面を生成するときのみに使用
-    public static final CheckerPlay EMPTY = CheckerPlay.of(ZERO); // 同上
+    public static final CheckerPlay EMPTY = new CheckerPlay(ZERO, new Move[0]); // 同上
+    // 可能な手がない場合のプレイ、ロールごとに共通のオブジェクトを使う
+    private static final CheckerPlay[] NO_MOVES = buildNoMoves();
     private final Roll roll;
     private final Move[] moves;
 
+    private static CheckerPlay[] buildNoMoves() {
+        var rolls = new CheckerPlay[21];
+        for (int r1 = 1; r1 <= 6; r1++) {
+            for (int r2 = 1; r2 <= r1; r2++) {
+                var roll = Roll.of(r1, r2);
+                rolls[roll.getIndex()] = new CheckerPlay(roll, new Move[0]);
+            }
+        }
+        return rolls;
+    }
+
     /**
      * コンストラクター
      *
@@ -28,7 +41,27 @@ public class CheckerPlay {
      * @return CheckerPlayオブジェクト
      */
     public static CheckerPlay of(Roll roll, Move... moves) {
-        return new CheckerPlay(roll, moves.clone());
+        return wrap(roll, moves.length == 0 ? moves : moves.clone());
+    }
+
+    /**
+     * 配列を複製せずにCheckerPlayを生成する
+     *
+     * <p>movesは生成されたオブジェクトがそのまま保持するので、呼び出し側で以後変更してはいけない。
+     * ムーブがない場合は、ロールごとに共通のオブジェクトが返る。
+     *
+     * @param roll  ロール
+     * @param moves ムーブの配列
+     * @return CheckerPlayオブジェクト
+     */
+    static CheckerPlay wrap(Roll roll, Move[] moves) {
+        if (moves.length == 0) {
+            int index = roll.getIndex();
+            if (index >= 0 && NO_MOVES[index].roll == roll) {
+                return NO_MOVES[index];
+            }
+        }
+        return new CheckerPlay(roll, moves);
     }
 
     @Override
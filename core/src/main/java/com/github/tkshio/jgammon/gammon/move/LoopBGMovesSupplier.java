@@ -0,0 +1,192 @@
+package com.github.tkshio.jgammon.gammon.move;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * {@link BGMovesSupplier}と同じ規則を、ストリームを使わずループだけで実装したもの
+ *
+ * <p>ムーブは呼び出し側が用意したint配列に、{@link #encode}で符号化した値として書き込まれる。
+ * 列挙のたびにストリームやコレクションを構築しないので、ムーブ生成の内側のループで使用することを想定している。
+ * {@link com.github.tkshio.jgammon.common.move.MovesSupplier MovesSupplier}としては、
+ * {@link #listupWithDefaultRule(BGBoard, int, int)}をメソッド参照で渡して使用する。
+ */
+public class LoopBGMovesSupplier {
+    private static final int HIT = 1;
+    private static final int FROM_SHIFT = 16;
+
+    // Collectionを返す列挙で使用する作業用バッファ、盤面の大きさに応じて拡張する
+    private static final ThreadLocal<int[]> BUFFERS = ThreadLocal.withInitial(() -> new int[0]);
+
+    /**
+     * 盤面に対して必要なバッファの大きさを返す
+     *
+     * @param board 対象盤面
+     * @return 1回の列挙で書き込まれうるムーブの最大数
+     */
+    public static int bufferSize(BGBoard board) {
+        return board.getBearOffPos() + 1;
+    }
+
+    /**
+     * ムーブをint値に符号化する
+     *
+     * @param from  駒の移動元
+     * @param to    駒の移動先、ベアリングオフは-1
+     * @param isHit ヒットの場合は真
+     * @return 符号化された値
+     */
+    public static int encode(int from, int to, boolean isHit) {
+        return (from << FROM_SHIFT) | ((to + 1) << 1) | (isHit ? HIT : 0);
+    }
+
+    /**
+     * 符号化された値から、Moveオブジェクトを得る
+     *
+     * @param code 符号化された値
+     * @return Moveオブジェクト
+     */
+    public static Move decode(int code) {
+        return Move.of(code >>> FROM_SHIFT, ((code & 0xFFFF) >>> 1) - 1, (code & HIT) != 0);
+    }
+
+    /**
+     * 与えられた盤面・ロール目での、指定位置以降（含む）の駒について可能なムーブを列挙する
+     *
+     * <p>作業用バッファはスレッドごとに再利用する。返すコレクションは、
+     * {@link com.github.tkshio.jgammon.common.move.MovesStack MovesStack}が階層をまたいで保持するため、呼び出しごとに生成する。
+     *
+     * @param board 対象となる盤面
+     * @param from  対象となる位置（この位置の駒も列挙対象に含む）
+     * @param roll  ロール目
+     * @return 可能なムーブのリスト、ない場合は空リストが返る
+     * @see BGMovesSupplier#listupWithDefaultRule
+     */
+    public static Collection<Move> listupWithDefaultRule(BGBoard board, int from, int roll) {
+        int[] buffer = BUFFERS.get();
+        if (buffer.length < bufferSize(board)) {
+            buffer = new int[bufferSize(board)];
+            BUFFERS.set(buffer);
+        }
+        int n = listupWithDefaultRule(board, from, roll, buffer);
+        if (n == 0) {
+            return Collections.emptyList();
+        }
+        Move[] moves = new Move[n];
+        for (int i = 0; i < n; i++) {
+            moves[i] = decode(buffer[i]);
+        }
+        return Arrays.asList(moves);
+    }
+
+    /**
+     * 与えられた盤面・ロール目での、指定位置以降（含む）の駒について可能なムーブをbufferに書き込む
+     *
+     * @param board  対象となる盤面
+     * @param from   対象となる位置（この位置の駒も列挙対象に含む）
+     * @param roll   ロール目
+     * @param buffer 書き込み先、{@link #bufferSize}以上の長さが必要
+     * @return 書き込んだムーブの数
+     */
+    public static int listupWithDefaultRule(BGBoard board, int from, int roll, int[] buffer) {
+        // ベアオフかどうかで分岐
+        if (board.isInBearingOff()) {
+            return listupForBearingOff(board, from, roll, buffer);
+        } else {
+            return listupMoves(board, from, roll, buffer, 0);
+        }
+    }
+
+    /**
+     * あがり局面から、指定のロール目で可能なムーブをbufferに書き込む
+     *
+     * @param board  対象盤面
+     * @param from   この位置およびそれ以降のみをムーブの開始位置とする
+     * @param roll   ロール目
+     * @param buffer 書き込み先
+     * @return 書き込んだムーブの数
+     * @see BGMovesSupplier#listupForBearingOff
+     */
+    public static int listupForBearingOff(BGBoard board, int from, int roll, int[] buffer) {
+        int bearOffPos = board.getBearOffPos();
+
+        // 最後尾の駒の位置
+        int highest = -1;
+        if (board.getPointAt(0) >= 1) {
+            highest = 0;
+        } else {
+            for (int pos = 0; pos < bearOffPos; pos++) {
+                if (board.getPointAt(pos) > 0) {
+                    highest = pos;
+                    break;
+                }
+            }
+        }
+
+        // 動かせる駒がない
+        if (highest < 0) {
+            return 0;
+        }
+
+        if (highest + roll > bearOffPos) {
+            // 最後尾の駒でもオーバーランするなら、それを上げる手しかない
+            if (highest >= from) {
+                buffer[0] = encode(highest, -1, false);
+                return 1;
+            }
+            return 0;
+        }
+
+        // ロール目より手前は普通のムーブ
+        int n = listupMoves(board, from, roll, buffer, 0);
+
+        // ベアオフムーブ（ロール目により一意に定まる）できるコマがあれば、それも追加
+        int pos = bearOffPos - roll;
+        if (board.getPointAt(pos) > 0) {
+            buffer[n++] = encode(pos, -1, false);
+        }
+        return n;
+    }
+
+    /**
+     * あがり局面でない局面から、指定のロール目で可能な通常の（ベアオフでない）ムーブをbufferに書き込む
+     *
+     * @param board  対象局面
+     * @param from   この位置およびそれ以降のみをムーブの開始位置とする
+     * @param roll   ロール目
+     * @param buffer 書き込み先
+     * @param offset bufferの書き込み開始位置
+     * @return 書き込み後のbufferの末尾位置（offset + 書き込んだムーブの数）
+     * @see BGMovesSupplier#listupMoves
+     */
+    public static int listupMoves(BGBoard board, int from, int roll, int[] buffer, int offset) {
+        int n = offset;
+        int bearOffPos = board.getBearOffPos();
+
+        // オンザバーならバーからのみ
+        if (board.getPointAt(0) >= 1) {
+            if (roll < bearOffPos) {
+                int opponent = board.getOpponentPointAt(roll);
+                // 行先がブロックされていなければ
+                if (opponent < 2) {
+                    buffer[n++] = encode(0, roll, opponent == 1);
+                }
+            }
+            return n;
+        }
+
+        // 行先が盤面内である、移動可能な駒それぞれについて
+        for (int pos = from; pos + roll < bearOffPos; pos++) {
+            if (board.getPointAt(pos) > 0) {
+                int to = pos + roll;
+                int opponent = board.getOpponentPointAt(to);
+                // 行先がブロックされていなければ
+                if (opponent < 2) {
+                    buffer[n++] = encode(pos, to, opponent == 1);
+                }
+            }
+        }
+        return n;
+    }
+}
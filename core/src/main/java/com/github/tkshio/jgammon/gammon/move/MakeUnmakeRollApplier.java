@@ -0,0 +1,281 @@
+package com.github.tkshio.jgammon.gammon.move;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 書き換え可能な作業用盤面に対してムーブの適用・取り消しを繰り返し、可能なプレイを列挙するRollApplier
+ *
+ * <p>{@link RollApplier#create}が途中のムーブごとに盤面とMovesStackを生成するのに対し、
+ * こちらはスレッドごとに一つだけ保持する作業用盤面を使いまわすため、列挙の途中で盤面が生成されることはない。
+ * 列挙されるプレイの内容は{@link RollApplier#create}と同一である（順序は異なりうる）。
+ *
+ * <p>列挙結果は{@link #forEachPlay}により、コールバックとして受け取ることができる。
+ *
+ * @param <BOARD> バックギャモンの盤面を表すクラス
+ */
+public class MakeUnmakeRollApplier<BOARD extends BGBoard> implements RollApplier<BOARD> {
+    private final int doubletDepth;
+    private final ThreadLocal<Worker> workers;
+
+    private MakeUnmakeRollApplier(int doubletDepth) {
+        this.doubletDepth = doubletDepth;
+        this.workers = ThreadLocal.withInitial(Worker::new);
+    }
+
+    /**
+     * 標準のバックギャモンルールに基づくオブジェクトを生成する
+     *
+     * @param <BOARD> 盤面の型
+     * @return 生成されたオブジェクト
+     */
+    public static <BOARD extends BGBoard>
+    MakeUnmakeRollApplier<BOARD> create() {
+        return new MakeUnmakeRollApplier<>(4);
+    }
+
+    /**
+     * ゾロ目ボーナスのないルールでのオブジェクトを生成する
+     *
+     * @param <BOARD> 盤面の型
+     * @return 生成されたオブジェクト
+     */
+    public static <BOARD extends BGBoard>
+    MakeUnmakeRollApplier<BOARD> createDoubletDisabled() {
+        return new MakeUnmakeRollApplier<>(2);
+    }
+
+    @Override
+    public Stream<CheckerPlay> listupMoves(BOARD board, Roll roll) {
+        List<CheckerPlay> checkerPlays = new ArrayList<>();
+        forEachPlay(board, roll, (r, moves, length, after) ->
+                checkerPlays.add(CheckerPlay.wrap(r, Arrays.copyOf(moves, length))));
+        return checkerPlays.stream();
+    }
+
+    /**
+     * 指定された盤面・ロールについて可能なプレイを列挙し、一つずつlistenerに渡す
+     *
+     * <p>可能な手がない場合は、長さ0のプレイが一回だけ渡される。
+     *
+     * @param board    対象盤面
+     * @param roll     ロール
+     * @param listener 列挙されたプレイを受け取るコールバック
+     */
+    public void forEachPlay(BGBoard board, Roll roll, PlayListener listener) {
+        Worker worker = workers.get();
+        if (worker.busy) {
+            // listenerの中から再度呼ばれた場合は、作業領域を別に用意する
+            worker = new Worker();
+        }
+        worker.busy = true;
+        try {
+            worker.run(board, roll, listener);
+        } finally {
+            worker.busy = false;
+        }
+    }
+
+    /**
+     * 列挙されたプレイを受け取るコールバック
+     */
+    @FunctionalInterface
+    public interface PlayListener {
+        /**
+         * 列挙されたプレイを受け取る
+         *
+         * <p>movesとboardは列挙処理の中で使いまわされているので、コールバックの外で参照する場合は複製しておく必要がある。
+         *
+         * @param roll   ロール
+         * @param moves  ムーブの配列、先頭からlength個が有効
+         * @param length 有効なムーブの数、可能な手がない場合は0
+         * @param board  プレイ適用後の盤面（座標系は適用前と同じ）
+         */
+        void accept(Roll roll, Move[] moves, int length, BGBoard board);
+    }
+
+    // スレッドごとの作業領域
+    private class Worker {
+        private ScratchBoard scratch;
+        // 階層ごとの、可能なムーブの格納先（LoopBGMovesSupplierによる符号化済みの値）
+        private int[][] buffers;
+        // 列挙中のプレイ
+        private final Move[] path = new Move[Math.max(2, doubletDepth)];
+        // ゾロ目でない場合の重複除去用マーク、RollApplierForNonDoubletのDupMarkerと同じ条件を扱う
+        private boolean[] sameFrom;
+        private boolean[] samePiece;
+        private boolean busy;
+
+        void run(BGBoard board, Roll roll, PlayListener listener) {
+            prepare(board);
+            if (roll.isDoublet()) {
+                applyDoublet(roll, listener);
+            } else {
+                applyNonDoublet(roll, listener);
+            }
+        }
+
+        private void prepare(BGBoard board) {
+            if (scratch == null || !scratch.fits(board)) {
+                int bearOffPos = board.getBearOffPos();
+                scratch = ScratchBoard.create(bearOffPos, board.getInnerPos());
+                buffers = new int[Math.max(3, doubletDepth)][LoopBGMovesSupplier.bufferSize(board)];
+                sameFrom = new boolean[bearOffPos + 1];
+                samePiece = new boolean[bearOffPos + 1];
+            }
+            scratch.load(board);
+        }
+
+        private void applyDoublet(Roll roll, PlayListener listener) {
+            int die = roll.getHigherNumber();
+
+            // できるだけ多くロールを消費する手だけを列挙するため、まず消費可能な回数を調べる
+            int length = measure(0, 0, die);
+            if (length == 0) {
+                listener.accept(roll, path, 0, scratch);
+            } else {
+                emit(0, 0, die, length, roll, listener);
+            }
+        }
+
+        // level以降で消費可能なロール目の最大数を返す
+        private int measure(int level, int from, int die) {
+            if (level == doubletDepth) {
+                return 0;
+            }
+            int n = listup(level, from, die);
+            int[] moves = buffers[level];
+            int max = 0;
+            for (int i = 0; i < n && max < doubletDepth - level; i++) {
+                Move move = LoopBGMovesSupplier.decode(moves[i]);
+                scratch.apply(move);
+                max = Math.max(max, 1 + measure(level + 1, move.getFrom(), die));
+                scratch.undo(move);
+            }
+            return max;
+        }
+
+        // ちょうどlength回ロール目を消費するプレイをすべて列挙する
+        private void emit(int level, int from, int die, int length,
+                          Roll roll, PlayListener listener) {
+            int n = listup(level, from, die);
+            int[] moves = buffers[level];
+            for (int i = 0; i < n; i++) {
+                Move move = LoopBGMovesSupplier.decode(moves[i]);
+                path[level] = move;
+                scratch.apply(move);
+                if (level + 1 == length) {
+                    listener.accept(roll, path, length, scratch);
+                } else {
+                    emit(level + 1, move.getFrom(), die, length, roll, listener);
+                }
+                scratch.undo(move);
+            }
+        }
+
+        private void applyNonDoublet(Roll roll, PlayListener listener) {
+            int higher = roll.getHigherNumber();
+            int lower = roll.getLowerNumber();
+
+            // まずロールを片方だけ使った場合のムーブを列挙する
+            int nHigher = listup(0, 0, higher);
+            int nLower = listup(1, 0, lower);
+
+            Arrays.fill(sameFrom, false);
+            Arrays.fill(samePiece, false);
+            int found = 0;
+
+            // 大きいほうを先に使うプレイを列挙し、重複除去のためのマークを行う
+            int[] higherMoves = buffers[0];
+            for (int i = 0; i < nHigher; i++) {
+                Move first = LoopBGMovesSupplier.decode(higherMoves[i]);
+                path[0] = first;
+                scratch.apply(first);
+                int n = listup(2, first.getFrom(), lower);
+                for (int j = 0; j < n; j++) {
+                    Move second = LoopBGMovesSupplier.decode(buffers[2][j]);
+                    mark(first, second);
+                    found += emitPair(roll, second, listener);
+                }
+                scratch.undo(first);
+            }
+
+            // 小さいほうを先に使うプレイを列挙し、重複分を除去する
+            int[] lowerMoves = buffers[1];
+            for (int i = 0; i < nLower; i++) {
+                Move first = LoopBGMovesSupplier.decode(lowerMoves[i]);
+                path[0] = first;
+                scratch.apply(first);
+                int n = listup(2, first.getFrom(), higher);
+                for (int j = 0; j < n; j++) {
+                    Move second = LoopBGMovesSupplier.decode(buffers[2][j]);
+                    if (shouldKeep(first, second)) {
+                        found += emitPair(roll, second, listener);
+                    }
+                }
+                scratch.undo(first);
+            }
+
+            if (found == 0) {
+                if (nHigher > 0) {
+                    // 大きいほうだけが使える
+                    emitSingles(roll, higherMoves, nHigher, listener);
+                } else if (nLower > 0) {
+                    // 小さいほうだけが使える
+                    emitSingles(roll, lowerMoves, nLower, listener);
+                } else {
+                    // どれも使えないなら空ムーブしかない
+                    listener.accept(roll, path, 0, scratch);
+                }
+            }
+        }
+
+        private int emitPair(Roll roll, Move second, PlayListener listener) {
+            path[1] = second;
+            scratch.apply(second);
+            listener.accept(roll, path, 2, scratch);
+            scratch.undo(second);
+            return 1;
+        }
+
+        private void emitSingles(Roll roll, int[] moves, int n, PlayListener listener) {
+            for (int i = 0; i < n; i++) {
+                Move move = LoopBGMovesSupplier.decode(moves[i]);
+                path[0] = move;
+                scratch.apply(move);
+                listener.accept(roll, path, 1, scratch);
+                scratch.undo(move);
+            }
+        }
+
+        private void mark(Move first, Move second) {
+            // 同じ場所から２つムーブ
+            if (first.getFrom() == second.getFrom()) {
+                sameFrom[first.getFrom()] = true;
+            }
+            // 同じ駒を２回ムーブ、かつ途中でヒットしない
+            if (first.getTo() == second.getFrom() && !first.isHit()) {
+                samePiece[first.getFrom()] = true;
+            }
+        }
+
+        private boolean shouldKeep(Move first, Move second) {
+            int pos = first.getFrom();
+            if (sameFrom[pos] && second.getFrom() == pos) {
+                return false;
+            }
+            if (samePiece[pos] && first.getTo() == second.getFrom() && !first.isHit()) {
+                return false;
+            }
+            // 両方上がる手は、大きい目を先に使ったときに列挙されている
+            return !(first.isBearOff() && second.isBearOff());
+        }
+
+        // 作業用盤面について、fromの位置以降から可能なムーブをbuffers[level]に格納し、その数を返す
+        private int listup(int level, int from, int roll) {
+            return LoopBGMovesSupplier.listupWithDefaultRule(scratch, from, roll, buffers[level]);
+        }
+    }
+}
@@ -5,14 +5,35 @@ import lombok.EqualsAndHashCode;
 
 /**
  * 駒１つの動きを示す
+ *
+ * <p>ファクトリーメソッドは、標準の盤面の範囲に収まるムーブについては、あらかじめ生成しておいた共通のオブジェクトを返す。
  */
 @Data
 @EqualsAndHashCode
 public class Move {
+    // 共通のオブジェクトを用意しておく位置の範囲、26ポイントの標準の盤面を含む
+    private static final int TABLE_SIZE = 32;
+    private static final Move[] TABLE = buildTable();
+
     private final int from;
     private final int to;
     private final boolean isHit;
 
+    private static Move[] buildTable() {
+        Move[] table = new Move[TABLE_SIZE * (TABLE_SIZE + 1) * 2];
+        for (int from = 0; from < TABLE_SIZE; from++) {
+            for (int to = -1; to < TABLE_SIZE; to++) {
+                table[index(from, to, false)] = new Move(from, to, false);
+                table[index(from, to, true)] = new Move(from, to, true);
+            }
+        }
+        return table;
+    }
+
+    private static int index(int from, int to, boolean isHit) {
+        return ((from * (TABLE_SIZE + 1)) + to + 1) * 2 + (isHit ? 1 : 0);
+    }
+
     /**
      * ファクトリーメソッド
      * <p>
@@ -38,6 +59,9 @@ public class Move {
      * @return 生成されたMoveオブジェクト
      */
     public static Move of(int from, int to, boolean isHit) {
+        if (0 <= from && from < TABLE_SIZE && -1 <= to && to < TABLE_SIZE) {
+            return TABLE[index(from, to, isHit)];
+        }
         return new Move(from, to, isHit);
     }
 
@@ -48,7 +72,7 @@ public class Move {
      * @return 生成されたMoveオブジェクト
      */
     public static Move bearOff(int pos) {
-        return new Move(pos, -1, false);
+        return of(pos, -1, false);
     }
 
     /**
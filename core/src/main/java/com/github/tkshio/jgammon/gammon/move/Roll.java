@@ -2,7 +2,15 @@ package com.github.tkshio.jgammon.gammon.move;
 
 import com.github.tkshio.jgammon.common.node.IndexedStateNode;
 
+/**
+ * ロール、すなわち2個のダイスの目の組を表す
+ *
+ * <p>6面ダイスで生じうる21通りのロールについては、{@link #of(int, int)}は常に同一のオブジェクトを返す。
+ */
 public class Roll implements Comparable<Roll>, IndexedStateNode.HasWeight {
+    private static final int MAX_CACHED = 6;
+    private static final Roll[] ROLLS = buildRolls();
+
     private final int higher;
     private final int lower;
     private final double weight;
@@ -23,10 +31,44 @@ public class Roll implements Comparable<Roll>, IndexedStateNode.HasWeight {
         }
     }
 
+    private static Roll[] buildRolls() {
+        Roll[] rolls = new Roll[(MAX_CACHED + 1) * (MAX_CACHED + 1)];
+        for (int higher = 1; higher <= MAX_CACHED; higher++) {
+            for (int lower = 1; lower <= higher; lower++) {
+                rolls[higher * (MAX_CACHED + 1) + lower] = new Roll(higher, lower);
+            }
+        }
+        return rolls;
+    }
+
+    /**
+     * ファクトリーメソッド
+     *
+     * @param r1 一つ目のダイスの目
+     * @param r2 二つ目のダイスの目
+     * @return ロール、目の順序は区別しない
+     */
     public static Roll of(int r1, int r2) {
+        int higher = Math.max(r1, r2);
+        int lower = Math.min(r1, r2);
+        if (1 <= lower && higher <= MAX_CACHED) {
+            return ROLLS[higher * (MAX_CACHED + 1) + lower];
+        }
         return new Roll(r1, r2);
     }
 
+    /**
+     * 6面ダイスで生じうるロールについて、0から20までの通し番号を返す
+     *
+     * @return 通し番号、6面ダイスの範囲外のロールでは-1
+     */
+    public int getIndex() {
+        if (lower < 1 || higher > MAX_CACHED) {
+            return -1;
+        }
+        return higher * (higher - 1) / 2 + lower - 1;
+    }
+
     public static Roll of(int r1, int r2, String desc) {
         return new Roll(r1, r2) {
             @Override
@@ -36,13 +36,27 @@ public interface RollApplier<BOARD> {
         return create(mop, 2);
     }
 
+    /**
+     * 作業用の盤面に対してムーブの適用・取り消しを行う、標準ルールのRollApplierを生成する
+     *
+     * <p>ムーブの適用に盤面の生成を伴わないので、MoveOperatorは不要
+     *
+     * @param <BOARD> 盤面の型
+     * @return 生成されたRollApplierオブジェクト
+     * @see MakeUnmakeRollApplier
+     */
+    static <BOARD extends BGBoard>
+    RollApplier<BOARD> createMakeUnmake() {
+        return MakeUnmakeRollApplier.create();
+    }
+
     private static <BOARD extends BGBoard>
     RollApplier<BOARD> create(MoveOperator<BOARD, Move> mop, int depth) {
 
         return (board, roll) -> {
             MovesStack<Move, Integer> movesStack = MovesStack
                     .create(mop,
-                            BGMovesSupplier::listupWithDefaultRule,
+                            LoopBGMovesSupplier::listupWithDefaultRule,
                             board);
 
             Stream<CheckerPlay> checkerPlays;
@@ -104,7 +104,7 @@ class RollApplierForNonDoublet {
 
                         // CheckerPlayに読み替える
                         .stream()
-                        .map(nextMove -> CheckerPlay.of(roll, move, nextMove))
+                        .map(nextMove -> CheckerPlay.wrap(roll, new Move[]{move, nextMove}))
                 )
 
                 // 得られた手の登録、または重複分の除去
@@ -117,7 +117,7 @@ class RollApplierForNonDoublet {
             Roll roll, Collection<Move> moves) {
 
         return moves.stream()
-                .map(appliedMove -> CheckerPlay.of(roll, appliedMove));
+                .map(appliedMove -> CheckerPlay.wrap(roll, new Move[]{appliedMove}));
 
     }
 
@@ -0,0 +1,131 @@
+package com.github.tkshio.jgammon.gammon.move;
+
+/**
+ * {@link MakeUnmakeRollApplier}が使用する、書き換え可能な作業用の盤面
+ *
+ * <p>ムーブの適用（apply）と取り消し（undo）をその場で行うため、ムーブのたびに盤面が複製されることはない。
+ * ベアリングオフの判定のため、インナーボードより手前にある自駒の数を合わせて管理している。
+ */
+class ScratchBoard implements BGBoard {
+    private final int[] points;
+    private final int bearOffPos;
+    private final int innerPos;
+    private final int bar;
+    private int outsideInner;
+
+    private ScratchBoard(int bearOffPos, int innerPos) {
+        this.points = new int[bearOffPos + 1];
+        this.bearOffPos = bearOffPos;
+        this.innerPos = innerPos;
+        this.bar = bearOffPos;
+    }
+
+    /**
+     * ファクトリーメソッド
+     *
+     * <p>生成直後は、駒が一つもない盤面となる。
+     *
+     * @param bearOffPos ベアリングオフの行き先の場所
+     * @param innerPos   インナーボードの開始点
+     * @return 生成されたオブジェクト
+     */
+    static ScratchBoard create(int bearOffPos, int innerPos) {
+        return new ScratchBoard(bearOffPos, innerPos);
+    }
+
+    /**
+     * 指定された盤面が、このオブジェクトに読み込めるかどうかを返す
+     *
+     * @param board 対象盤面
+     * @return 大きさが一致していれば真
+     */
+    boolean fits(BGBoard board) {
+        return bearOffPos == board.getBearOffPos()
+                && innerPos == board.getInnerPos();
+    }
+
+    /**
+     * 指定された盤面の配置を読み込む
+     *
+     * @param board 読み込む盤面
+     */
+    void load(BGBoard board) {
+        int outside = 0;
+        for (int i = 0; i < points.length; i++) {
+            int n = board.getPointAt(i);
+            points[i] = n;
+            if (i < innerPos && n > 0) {
+                outside += n;
+            }
+        }
+        this.outsideInner = outside;
+    }
+
+    /**
+     * ムーブを適用する
+     *
+     * @param move 適用するムーブ
+     */
+    void apply(Move move) {
+        int from = move.getFrom();
+        points[from]--;
+        if (from < innerPos) {
+            outsideInner--;
+        }
+        if (!move.isBearOff()) {
+            int to = move.getTo();
+            if (move.isHit()) {
+                points[to]++;
+                points[bar]--;
+            }
+            points[to]++;
+            if (to < innerPos) {
+                outsideInner++;
+            }
+        }
+    }
+
+    /**
+     * 直前に適用したムーブを取り消す
+     *
+     * @param move 取り消すムーブ、適用した順と逆順に指定しなくてはいけない
+     */
+    void undo(Move move) {
+        if (!move.isBearOff()) {
+            int to = move.getTo();
+            points[to]--;
+            if (move.isHit()) {
+                points[to]--;
+                points[bar]++;
+            }
+            if (to < innerPos) {
+                outsideInner--;
+            }
+        }
+        int from = move.getFrom();
+        points[from]++;
+        if (from < innerPos) {
+            outsideInner++;
+        }
+    }
+
+    @Override
+    public int getPointAt(int pos) {
+        return points[pos];
+    }
+
+    @Override
+    public int getBearOffPos() {
+        return bearOffPos;
+    }
+
+    @Override
+    public int getInnerPos() {
+        return innerPos;
+    }
+
+    @Override
+    public boolean isInBearingOff() {
+        return outsideInner == 0;
+    }
+}
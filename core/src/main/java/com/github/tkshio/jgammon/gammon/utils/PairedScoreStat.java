@@ -0,0 +1,92 @@
+package com.github.tkshio.jgammon.gammon.utils;
+
+/**
+ * デュプリケート形式の対局の結果を、同じ出目の2局を1組として集計する
+ *
+ * <p>組ごとに、一方のプレイヤーから見た2局の得失点の合計を標本とし、1局あたりの平均得失点と、
+ * その標準誤差・95%信頼区間を求める。同じ出目で色を入れ替えて打つので、出目の運による分散が打ち消され、
+ * 1局ずつの集計に比べて少ない対局数で同じ精度が得られる。
+ */
+public class PairedScoreStat {
+    /**
+     * 信頼区間の算出に使用する、標準正規分布の97.5%点
+     */
+    public static final double Z_95 = 1.959964;
+
+    private long pairs = 0;
+    private double sum = 0;
+    private double sqSum = 0;
+
+    /**
+     * 1組分の結果を追加する
+     *
+     * @param first  1局目の得失点（集計対象のプレイヤーの観点）
+     * @param second 2局目の得失点（同上）
+     */
+    public void add(int first, int second) {
+        double value = first + second;
+        pairs++;
+        sum += value;
+        sqSum += value * value;
+    }
+
+    /**
+     * 集計した組数を返す
+     *
+     * @return 組数
+     */
+    public long getPairs() {
+        return pairs;
+    }
+
+    /**
+     * 1局あたりの平均得失点を返す
+     *
+     * @return 平均得失点
+     */
+    public double getMean() {
+        return (pairs == 0) ? 0 : sum / pairs / 2;
+    }
+
+    /**
+     * 1局あたりの平均得失点の標準誤差を返す
+     *
+     * @return 標準誤差、2組未満の場合はNaN
+     */
+    public double getStandardError() {
+        if (pairs < 2) {
+            return Double.NaN;
+        }
+        double mean = sum / pairs;
+        double variance = (sqSum - mean * sum) / (pairs - 1);
+        return Math.sqrt(Math.max(variance, 0) / pairs) / 2;
+    }
+
+    /**
+     * 95%信頼区間の下限を返す
+     *
+     * @return 下限
+     */
+    public double getLowerBound() {
+        return getMean() - Z_95 * getStandardError();
+    }
+
+    /**
+     * 95%信頼区間の上限を返す
+     *
+     * @return 上限
+     */
+    public double getUpperBound() {
+        return getMean() + Z_95 * getStandardError();
+    }
+
+    /**
+     * 集計結果をテキスト出力する
+     *
+     * @return 集計結果を示すテキスト
+     */
+    public String summarize() {
+        return String.format("pairs:%d ppg:%+.4f (se:%.4f, 95%%CI:[%+.4f, %+.4f])",
+                pairs, getMean(), getStandardError(), getLowerBound(), getUpperBound());
+    }
+}
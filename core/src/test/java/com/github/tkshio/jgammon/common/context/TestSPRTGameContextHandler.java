@@ -0,0 +1,76 @@
+package com.github.tkshio.jgammon.common.context;
+
+import com.github.tkshio.jgammon.common.director.Player;
+import com.github.tkshio.jgammon.common.evaluator.OnePlyPlayer;
+import com.github.tkshio.jgammon.common.utils.SGTuple;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSPRTGameContextHandler {
+    private final Player<String> candidate = player("candidate");
+    private final Player<String> baseline = player("baseline");
+
+    @Test
+    public void acceptH1() {
+        var sprt = SPRTGameContextHandler.create(candidate, 0.5, 0.6, 0.05, 0.05);
+
+        // 上限はlog(19)、1勝ごとにlog(1.2)を加算するので、17連勝で判定できる
+        for (int i = 0; i < 16; i++) {
+            sprt.whiteWin(null, candidate, baseline, "");
+        }
+        assertFalse(sprt.isDecided());
+        sprt.redWin(null, candidate, baseline, "");
+        assertEquals(SPRTGameContextHandler.Decision.ACCEPT_H1, sprt.getDecision());
+
+        // 判定後の結果は集計しない
+        sprt.redWin(null, baseline, candidate, "");
+        assertEquals(17, sprt.getWins());
+        assertEquals(0, sprt.getLosses());
+    }
+
+    @Test
+    public void acceptH0() {
+        var sprt = SPRTGameContextHandler.create(candidate, 0.5, 0.6, 0.05, 0.05);
+
+        // 1敗ごとにlog(0.8)を加算するので、14連敗で判定できる
+        for (int i = 0; i < 13; i++) {
+            sprt.whiteWin(null, baseline, candidate, "");
+        }
+        assertFalse(sprt.isDecided());
+        sprt.whiteWin(null, baseline, candidate, "");
+        assertEquals(SPRTGameContextHandler.Decision.ACCEPT_H0, sprt.getDecision());
+    }
+
+    @Test
+    public void balancedResults() {
+        var sprt = SPRTGameContextHandler.create(candidate, 0.5, 0.6, 0.05, 0.05);
+
+        // 勝率が両仮説の中間付近なら、判定には多くの対局を要する
+        for (int i = 0; i < 50; i++) {
+            sprt.whiteWin(null, candidate, baseline, "");
+            sprt.redWin(null, baseline, candidate, "");
+        }
+        assertFalse(sprt.isDecided());
+        assertTrue(sprt.getLLR() < 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidHypotheses() {
+        SPRTGameContextHandler.create(candidate, 0.6, 0.5, 0.05, 0.05);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidErrorRate() {
+        SPRTGameContextHandler.create(candidate, 0.5, 0.6, 0, 0.05);
+    }
+
+    private static Player<String> player(String name) {
+        return OnePlyPlayer.<String>builder()
+                .evs(SGTuple.of(state -> () -> 0))
+                .name(name)
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.tkshio.jgammon.common.dice;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSplittableDice {
+    @Test
+    public void sameStreamForSameGame() {
+        // 生成の順序やそれまでの対局によらず、対局番号が同じなら同じ系列になる
+        Dice sequential = SplittableDice.create(6, 1, 5);
+        sequential.reset();
+        rolls(sequential, 37);
+        sequential.reset();
+
+        Dice direct = SplittableDice.create(6, 1, 6);
+        direct.reset();
+
+        assertArrayEquals(rolls(direct, 100), rolls(sequential, 100));
+        assertEquals(2, sequential.resetCount());
+    }
+
+    @Test
+    public void independentStreams() {
+        var game1 = rolls(SplittableDice.create(6, 1, 1), 100);
+        var game2 = rolls(SplittableDice.create(6, 1, 2), 100);
+        var otherSeed = rolls(SplittableDice.create(6, 2, 1), 100);
+
+        assertFalse(Arrays.equals(game1, game2));
+        assertFalse(Arrays.equals(game1, otherSeed));
+    }
+
+    @Test
+    public void uniform() {
+        Dice dice = SplittableDice.create(6, 123);
+        int[] counts = new int[7];
+        int n = 60000;
+        for (int i = 0; i < n; i++) {
+            counts[dice.roll()]++;
+        }
+        assertEquals(0, counts[0]);
+        for (int v = 1; v <= 6; v++) {
+            assertTrue("" + counts[v], Math.abs(counts[v] - n / 6) < 500);
+        }
+    }
+
+    private static int[] rolls(Dice dice, int n) {
+        int[] values = new int[n];
+        Arrays.setAll(values, i -> dice.roll());
+        return values;
+    }
+}
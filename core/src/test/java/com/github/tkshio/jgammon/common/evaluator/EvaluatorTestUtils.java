@@ -0,0 +1,90 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import com.github.tkshio.jgammon.common.context.GameContextHandler.TebanContextHandler;
+import com.github.tkshio.jgammon.common.node.IndexedStateNode;
+import com.github.tkshio.jgammon.gammon.BGType;
+import com.github.tkshio.jgammon.gammon.BackgammonBoard;
+import com.github.tkshio.jgammon.gammon.BackgammonState;
+import com.github.tkshio.jgammon.gammon.BackgammonStateOperator;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 評価器・プレイヤーのテストで共通に使用する評価器や局面
+ */
+public final class EvaluatorTestUtils {
+    /**
+     * ピップ数の差で評価する（指した側の観点）
+     */
+    public static final StateEvaluator<BackgammonState> PIPS = state -> {
+        var board = state.getRevertedBoard();
+        double score = board.getOpponentPipCount() - board.getPipCount();
+        return () -> score;
+    };
+
+    /**
+     * 何もしないハンドラー
+     */
+    public static final TebanContextHandler<BackgammonState> HANDLER = new TebanContextHandler<>() {
+    };
+
+    private static final BackgammonStateOperator op = BackgammonStateOperator.create();
+
+    private EvaluatorTestUtils() {
+    }
+
+    /**
+     * 初期配置から赤が先手で始まる局面のノードを返す
+     *
+     * @param bgType 盤面の種類
+     * @return ノード
+     */
+    public static IndexedStateNode<BackgammonState, Roll> rootNode(BGType bgType) {
+        return rootNode(BackgammonBoard.create(bgType));
+    }
+
+    /**
+     * 指定された盤面から赤が先手で始まる局面のノードを返す
+     *
+     * @param board 盤面
+     * @return ノード
+     */
+    public static IndexedStateNode<BackgammonState, Roll> rootNode(BackgammonBoard board) {
+        return IndexedStateNode.initialNode(op.redGoesFirst(board), () -> {
+            throw new UnsupportedOperationException();
+        });
+    }
+
+    /**
+     * rootに対して、指定されたロールで可能な候補手を返す
+     *
+     * @param root 局面
+     * @param roll ロール
+     * @return 候補手のノード
+     */
+    public static List<IndexedStateNode<BackgammonState, Roll>> candidates(
+            IndexedStateNode<BackgammonState, Roll> root, Roll roll) {
+        return List.copyOf(IndexedStateNode.wrapAsNodes(
+                op.buildNextState(root.getState(), roll), () -> {
+                    throw new UnsupportedOperationException();
+                }));
+    }
+
+    /**
+     * 子局面を参照のたびに生成し直すノードを得る関数を、子局面を生成した回数を数えるようにして返す
+     *
+     * @param count 生成の回数
+     * @return {@link BackgammonStateOperator#onDemandNode(BackgammonState)}と同様のノードを返す関数
+     */
+    public static Function<BackgammonState, IndexedStateNode<BackgammonState, Roll>> countingNode(AtomicInteger count) {
+        var rolls = op.listupRolls();
+        return state -> IndexedStateNode.initialNode(state, op::generateRoll)
+                .growOnDemand(rolls, rolls, op::generateRoll, (parent, roll) -> {
+                    count.incrementAndGet();
+                    return op.buildNextState(parent, roll);
+                });
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestBatchingEvaluation {
+    @Test
+    public void lockstep() throws Exception {
+        var batchSizes = new ArrayList<Integer>();
+        var batching = BatchingEvaluation.<Integer>create(10_000);
+        var ev = batching.wrap(recording(batchSizes));
+
+        int threads = 4;
+        int steps = 10;
+        var barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                futures.add(executor.submit(() -> {
+                    ev.initialState(0);
+                    barrier.await();
+                    boolean ok = true;
+                    for (int step = 0; step < steps; step++) {
+                        var states = List.of(id * 100 + step, id * 100 + step + 50, -id);
+                        var scores = ev.evalAll(states).stream()
+                                .map(Eval::getScore)
+                                .collect(Collectors.toList());
+                        ok &= scores.equals(List.of((double) states.get(0), (double) states.get(1), (double) -id));
+                    }
+                    ev.won(0);
+                    return ok;
+                }));
+            }
+            for (var future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // 全スレッドの要求が揃ってから、まとめて評価される
+        assertEquals(steps, batching.getBatches());
+        assertEquals(threads * steps * 3, batching.getStates());
+        batchSizes.forEach(size -> assertEquals(threads * 3, (int) size));
+    }
+
+    @Test
+    public void unregisteredThread() {
+        var batchSizes = new ArrayList<Integer>();
+        var batching = BatchingEvaluation.<Integer>create();
+        var ev = batching.wrap(recording(batchSizes));
+
+        // 対局中でないスレッドからの要求は、そのまま評価される
+        assertEquals(3.0, ev.eval(3).getScore(), 0);
+        assertEquals(0, batching.getBatches());
+
+        // 対局中のスレッドが一つだけなら、待たずに評価される
+        ev.initialState(0);
+        assertEquals(2, ev.evalAll(List.of(1, 2)).size());
+        ev.abort();
+        assertEquals(1, batching.getBatches());
+        assertEquals(List.of(1, 2), batchSizes);
+    }
+
+    private static StateEvaluator<Integer> recording(List<Integer> batchSizes) {
+        return new StateEvaluator<>() {
+            @Override
+            public Eval eval(Integer state) {
+                return () -> state;
+            }
+
+            @Override
+            public List<Eval> evalAll(List<Integer> states) {
+                batchSizes.add(states.size());
+                return StateEvaluator.super.evalAll(states);
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestCachedStateEvaluator {
+    @Test
+    public void hitAndMiss() {
+        var count = new AtomicInteger();
+        StateEvaluator<Integer> ev = state -> {
+            count.incrementAndGet();
+            return () -> state;
+        };
+        var cached = CachedStateEvaluator.create(ev, Integer::longValue);
+
+        var eval = cached.eval(1);
+        assertSame(eval, cached.eval(1));
+        assertEquals(1.0, cached.eval(1).getScore(), 0);
+        assertEquals(2.0, cached.eval(2).getScore(), 0);
+
+        assertEquals(2, count.get());
+        assertEquals(2, cached.getHitCount());
+        assertEquals(2, cached.getMissCount());
+        assertEquals(2, cached.size());
+
+        cached.clear();
+        assertEquals(0, cached.size());
+        cached.eval(1);
+        assertEquals(3, count.get());
+    }
+
+    @Test
+    public void evalAllOnlyMisses() {
+        var batches = new ArrayList<List<Integer>>();
+        StateEvaluator<Integer> ev = new StateEvaluator<>() {
+            @Override
+            public Eval eval(Integer state) {
+                return () -> state;
+            }
+
+            @Override
+            public List<Eval> evalAll(List<Integer> states) {
+                batches.add(states);
+                return StateEvaluator.super.evalAll(states);
+            }
+        };
+        var cached = CachedStateEvaluator.create(ev, Integer::longValue);
+
+        cached.eval(2);
+        var evals = cached.evalAll(List.of(1, 2, 3));
+
+        // キャッシュにない局面だけが、まとめて評価される
+        assertEquals(List.of(List.of(1, 3)), batches);
+        assertEquals(3, evals.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, evals.get(i).getScore(), 0);
+        }
+        assertSame(cached.eval(3), evals.get(2));
+        assertEquals(2, cached.getHitCount());
+        assertEquals(3, cached.getMissCount());
+    }
+
+    @Test
+    public void bounded() {
+        for (var eviction : CachedStateEvaluator.Eviction.values()) {
+            StateEvaluator<Integer> ev = state -> () -> state;
+            var cached = CachedStateEvaluator.create(ev, Integer::longValue, 256, eviction);
+            for (int i = 0; i < 10000; i++) {
+                cached.eval(i);
+            }
+            assertTrue(eviction.name(), cached.size() <= 256);
+            assertEquals(10000, cached.getMissCount());
+        }
+    }
+
+    @Test
+    public void recentlyUsedEntriesSurvive() {
+        for (var eviction : CachedStateEvaluator.Eviction.values()) {
+            StateEvaluator<Integer> ev = state -> () -> state;
+            var cached = CachedStateEvaluator.create(ev, Integer::longValue, 4096, eviction);
+            // 頻繁に参照される局面は、他の局面で溢れさせても残る
+            for (int i = 0; i < 100000; i++) {
+                cached.eval(-1);
+                cached.eval(i);
+            }
+            assertEquals(eviction.name(), 100000 - 1, cached.getHitCount());
+        }
+    }
+
+    @Test
+    public void concurrentEval() {
+        StateEvaluator<Integer> ev = state -> () -> state;
+        var cached = CachedStateEvaluator.create(ev, Integer::longValue, 1 << 16,
+                CachedStateEvaluator.Eviction.CLOCK);
+        IntStream.range(0, 200000).parallel().forEach(i -> {
+            int state = i % 1000;
+            assertEquals(state, cached.eval(state).getScore(), 0);
+        });
+        assertEquals(200000, cached.getHitCount() + cached.getMissCount());
+        assertEquals(1000, cached.size());
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import com.github.tkshio.jgammon.common.node.IndexedStateNode;
+import com.github.tkshio.jgammon.common.node.Node;
+import com.github.tkshio.jgammon.common.utils.SGTuple;
+import com.github.tkshio.jgammon.gammon.BGType;
+import com.github.tkshio.jgammon.gammon.BackgammonState;
+import com.github.tkshio.jgammon.gammon.BackgammonStateOperator;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.HANDLER;
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.candidates;
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.countingNode;
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.rootNode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestChanceNodePruning {
+    // ピップ数の差を、絶対値が1以下になるように変換して評価する（指した側の観点）
+    private static final StateEvaluator<BackgammonState> BOUNDED_PIPS = state -> {
+        var board = state.getRevertedBoard();
+        double score = Math.tanh((board.getOpponentPipCount() - board.getPipCount()) / 10.0);
+        return () -> score;
+    };
+
+    private final BackgammonStateOperator op = BackgammonStateOperator.create();
+
+    @Test
+    public void sameBestMoveWithFewerEvaluations() {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(3, 1));
+
+        var plain = new AtomicInteger();
+        var expected = nPlyPlayer(2, counting(plain), null)
+                .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+
+        var pruned = new AtomicInteger();
+        var answer = nPlyPlayer(2, counting(pruned), ChanceNodePruning.of(1))
+                .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+
+        assertEquals(expected.getEval().getScore(), answer.getEval().getScore(), 1e-9);
+        assertSame(expected.getStateNode().getState(), answer.getStateNode().getState());
+        assertTrue(pruned.get() + " < " + plain.get(), pruned.get() < plain.get());
+    }
+
+    @Test
+    public void prefersExactBestOnTies() {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(3, 1));
+
+        var states = candidates.stream().map(IndexedStateNode::getState).collect(Collectors.toList());
+
+        // 1Plyでは後の候補手ほど評価値が高いが、応手の評価値はすべて等しく、候補手の評価値は±boundでそろう
+        for (double reply : new double[]{1, -1}) {
+            StateEvaluator<BackgammonState> ev = state -> {
+                double score = (state.getPly() == 1) ? states.indexOf(state) / 100.0 : reply;
+                return () -> score;
+            };
+
+            // 打ち切らずに評価されるのは、1Plyの評価値が最大の、最後の候補手
+            var exact = candidates.get(candidates.size() - 1);
+
+            for (var p : List.of(ChanceNodePruning.<BackgammonState>of(1),
+                    ChanceNodePruning.<BackgammonState>of(1).withoutProbing())) {
+                var answer = nPlyPlayer(2, ev, p)
+                        .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+                assertEquals(-reply, answer.getEval().getScore(), 0);
+                assertSame(exact.getState(), answer.getStateNode().getState());
+            }
+        }
+    }
+
+    @Test
+    public void threePlyWithOrdering() {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(2, 1));
+
+        var expected = nPlyPlayer(3, BOUNDED_PIPS, null)
+                .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+
+        // 応手は相手にとって有利な順（評価値の降順）に、ロールは重みの小さい順に並べる
+        ChanceNodePruning<BackgammonState> pruning = ChanceNodePruning.<BackgammonState>of(1)
+                .withReplyOrder(Comparator.comparingDouble(state -> -BOUNDED_PIPS.eval(state).getScore()))
+                .withRollOrder(Comparator.comparingDouble(entry -> entry.getWeight()));
+        for (var p : List.of(pruning, pruning.withoutProbing())) {
+            var answer = nPlyPlayer(3, BOUNDED_PIPS, p)
+                    .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+            assertEquals(expected.getEval().getScore(), answer.getEval().getScore(), 1e-9);
+        }
+    }
+
+    @Test
+    public void twoPlyPlayer() {
+        var root = rootNode(BGType.mini);
+        var grown = candidates(root, Roll.of(4, 1)).stream()
+                .map(node -> node.grow(op.listupRolls(), op::generateRoll, op::buildNextState))
+                .collect(Collectors.toList());
+
+        var expected = TwoPlyPlayer.<BackgammonState>builder().evs(SGTuple.of(BOUNDED_PIPS)).build()
+                .createEvaluators().sente().evaluate(root, grown, HANDLER);
+        var answer = TwoPlyPlayer.<BackgammonState>builder().evs(SGTuple.of(BOUNDED_PIPS))
+                .pruning(ChanceNodePruning.of(1))
+                .build()
+                .createEvaluators().sente().evaluate(root, grown, HANDLER);
+
+        assertEquals(expected.getEval().getScore(), answer.getEval().getScore(), 1e-9);
+        assertSame(expected.getStateNode().getState(), answer.getStateNode().getState());
+    }
+
+    @Test
+    public void generatesRepliesOnce() {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(3, 1));
+
+        var plain = new AtomicInteger();
+        var expected = nPlyPlayer(2, BOUNDED_PIPS, null, countingNode(plain))
+                .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+
+        var pruned = new AtomicInteger();
+        var answer = nPlyPlayer(2, BOUNDED_PIPS, ChanceNodePruning.of(1), countingNode(pruned))
+                .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+
+        assertSame(expected.getStateNode().getState(), answer.getStateNode().getState());
+        assertEquals(candidates.size() * op.listupRolls().size(), plain.get());
+        assertTrue(pruned.get() + " <= " + plain.get(), pruned.get() <= plain.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void infiniteBound() {
+        ChanceNodePruning.of(Double.POSITIVE_INFINITY);
+    }
+
+    private static StateEvaluator<BackgammonState> counting(AtomicInteger count) {
+        return state -> {
+            count.incrementAndGet();
+            return BOUNDED_PIPS.eval(state);
+        };
+    }
+
+    private NPlyPlayer<BackgammonState> nPlyPlayer(int depth, StateEvaluator<BackgammonState> ev,
+                                                   ChanceNodePruning<BackgammonState> pruning) {
+        return nPlyPlayer(depth, ev, pruning, op::onDemandNode);
+    }
+
+    private NPlyPlayer<BackgammonState> nPlyPlayer(int depth, StateEvaluator<BackgammonState> ev,
+                                                   ChanceNodePruning<BackgammonState> pruning,
+                                                   Function<BackgammonState, ? extends Node<BackgammonState>> nodeFactory) {
+        return NPlyPlayer.<BackgammonState>builder()
+                .evs(SGTuple.of(ev))
+                .depth(depth)
+                .nodeFactory(nodeFactory)
+                .pruning(pruning)
+                .build();
+    }
+}
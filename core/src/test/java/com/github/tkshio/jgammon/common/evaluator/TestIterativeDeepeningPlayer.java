@@ -0,0 +1,93 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import com.github.tkshio.jgammon.common.utils.SGTuple;
+import com.github.tkshio.jgammon.gammon.BGType;
+import com.github.tkshio.jgammon.gammon.BackgammonState;
+import com.github.tkshio.jgammon.gammon.BackgammonStateOperator;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.HANDLER;
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.PIPS;
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.candidates;
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.rootNode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestIterativeDeepeningPlayer {
+    private final BackgammonStateOperator op = BackgammonStateOperator.create();
+
+    @Test
+    public void sameAsFilteredNPlyPlayer() {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(3, 1));
+
+        // 制限がなければ、各深さで絞り込んでから読んだNPlyPlayerと同じ結果になる
+        var player = IterativeDeepeningPlayer.<BackgammonState>builder()
+                .evs(SGTuple.of(PIPS))
+                .nodeFactory(op::onDemandNode)
+                .maxDepth(3)
+                .keep(2)
+                .margin(0)
+                .build();
+        var nPly = NPlyPlayer.<BackgammonState>builder()
+                .evs(SGTuple.of(PIPS))
+                .depth(3)
+                .nodeFactory(op::onDemandNode)
+                .filter(MoveFilter.of(1, 2, 0))
+                .filter(MoveFilter.of(2, 2, 0))
+                .build();
+
+        var expected = nPly.createEvaluators().sente().evaluate(root, candidates, HANDLER);
+        var answer = player.createEvaluators().sente().evaluate(root, candidates, HANDLER);
+        assertEquals(expected.getEval().getScore(), answer.getEval().getScore(), 1e-9);
+        assertSame(expected.getStateNode().getState(), answer.getStateNode().getState());
+    }
+
+    @Test
+    public void fallsBackToCompletedDepth() throws InterruptedException {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(3, 1));
+        var onePly = OnePlyPlayer.<BackgammonState>builder().evs(SGTuple.of(PIPS)).build()
+                .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+
+        // 持ち時間がなければ、1Plyの結果を返す
+        var noTime = IterativeDeepeningPlayer.<BackgammonState>builder()
+                .evs(SGTuple.of(PIPS))
+                .nodeFactory(op::onDemandNode)
+                .timeLimit(Duration.ZERO)
+                .build()
+                .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+        assertSame(onePly.getStateNode().getState(), noTime.getStateNode().getState());
+
+        // 2Plyの途中で評価局面数が尽きた場合も、1Plyの結果を返す
+        var count = new AtomicInteger();
+        StateEvaluator<BackgammonState> counting = state -> {
+            count.incrementAndGet();
+            return PIPS.eval(state);
+        };
+        var pool = new ForkJoinPool(1);
+        try {
+            var limited = IterativeDeepeningPlayer.<BackgammonState>builder()
+                    .evs(SGTuple.of(counting))
+                    .nodeFactory(op::onDemandNode)
+                    .evaluationLimit(100)
+                    .pool(pool)
+                    .build()
+                    .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+            assertEquals(onePly.getEval().getScore(), limited.getEval().getScore(), 0);
+
+            // 1スレッドで評価した場合、上限を超えるのはロール1つ分の応手まで
+            assertTrue(count.get() < candidates.size() + 100 + 50);
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
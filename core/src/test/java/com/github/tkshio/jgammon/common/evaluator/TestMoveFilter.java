@@ -0,0 +1,28 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestMoveFilter {
+    @Test
+    public void keepTopAndWithinMargin() {
+        List<Double> candidates = List.of(0.1, 0.5, 0.45, -0.3, 0.41, 0.2);
+
+        // 上位2件
+        assertEquals(List.of(0.5, 0.45), MoveFilter.of(1, 2, 0.0).select(candidates, d -> d));
+        // 上位1件と、最善手との差が0.1以内のもの
+        assertEquals(List.of(0.5, 0.45, 0.41), MoveFilter.of(1, 1, 0.1).select(candidates, d -> d));
+        // 件数が上限以下なら、評価せずにそのまま残す
+        assertEquals(candidates, MoveFilter.of(1, 6, 0.0).select(candidates, d -> {
+            throw new AssertionError();
+        }));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidKeep() {
+        MoveFilter.of(1, 0, 0.1);
+    }
+}
@@ -0,0 +1,270 @@
+package com.github.tkshio.jgammon.common.evaluator;
+
+import com.github.tkshio.jgammon.common.context.GameContextHandler.TebanContextHandler;
+import com.github.tkshio.jgammon.common.utils.SGTuple;
+import com.github.tkshio.jgammon.gammon.BGType;
+import com.github.tkshio.jgammon.gammon.BackgammonBoard;
+import com.github.tkshio.jgammon.gammon.BackgammonState;
+import com.github.tkshio.jgammon.gammon.BackgammonStateOperator;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.HANDLER;
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.PIPS;
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.candidates;
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.countingNode;
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.rootNode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestNPlyPlayer {
+    private final BackgammonStateOperator op = BackgammonStateOperator.create();
+
+    @Test
+    public void sameAsOnePlyPlayer() {
+        var root = rootNode(BGType.standard);
+        var candidates = candidates(root, Roll.of(6, 2));
+
+        var expected = OnePlyPlayer.<BackgammonState>builder().evs(SGTuple.of(PIPS)).build()
+                .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+        var answer = nPlyPlayer(1).createEvaluators().sente().evaluate(root, candidates, HANDLER);
+
+        assertEquals(expected.getEval().getScore(), answer.getEval().getScore(), 0);
+    }
+
+    @Test
+    public void sameAsTwoPlyPlayer() {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(4, 1));
+
+        // TwoPlyPlayerは、あらかじめ応手まで延ばしたツリーを必要とする
+        var grown = candidates.stream()
+                .map(node -> node.grow(op.listupRolls(), op::generateRoll, op::buildNextState))
+                .collect(Collectors.toList());
+        var expected = TwoPlyPlayer.<BackgammonState>builder().evs(SGTuple.of(PIPS)).build()
+                .createEvaluators().sente().evaluate(root, grown, HANDLER);
+
+        // NPlyPlayerは、展開されていないノードから評価できる
+        var answer = nPlyPlayer(2).createEvaluators().sente().evaluate(root, candidates, HANDLER);
+
+        assertEquals(expected.getEval().getScore(), answer.getEval().getScore(), 1e-9);
+        assertSame(expected.getStateNode().getState(), answer.getStateNode().getState());
+    }
+
+    @Test
+    public void finishingMoveIsBest() {
+        // 赤は11と12に1つずつ、2-1なら11/off 12/offで上がれる
+        var root = rootNode(BackgammonBoard.create(BGType.mini, new int[]{
+                0,
+                -2, -2, 0,
+                0, 0, 0,
+                0, 0, 0,
+                0, 1, 1,
+                0
+        }));
+        var candidates = candidates(root, Roll.of(2, 1));
+        var grown = candidates.stream()
+                .map(node -> node.grow(op.listupRolls(), op::generateRoll, op::buildNextState))
+                .collect(Collectors.toList());
+        var expected = TwoPlyPlayer.<BackgammonState>builder().evs(SGTuple.of(PIPS)).build()
+                .createEvaluators().sente().evaluate(root, grown, HANDLER);
+        assertEquals(Double.POSITIVE_INFINITY, expected.getEval().getScore(), 0);
+        assertEquals(0, expected.getStateNode().getState().getBoard().getOpponentPipCount());
+
+        // 対局が終了する手は、TwoPlyPlayerと同様に正の無限大と評価する
+        var players = List.of(nPlyPlayer(2), nPlyPlayer(3),
+                NPlyPlayer.<BackgammonState>builder()
+                        .evs(SGTuple.of(PIPS))
+                        .depth(3)
+                        .nodeFactory(op::onDemandNode)
+                        .filter(MoveFilter.of(2, 1, 0))
+                        .build());
+        for (var player : players) {
+            var answer = player.createEvaluators().sente().evaluate(root, candidates, HANDLER);
+            assertEquals(Double.POSITIVE_INFINITY, answer.getEval().getScore(), 0);
+            assertSame(expected.getStateNode().getState(), answer.getStateNode().getState());
+        }
+    }
+
+    @Test
+    public void threePly() {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(3, 1));
+
+        var evaluated = nPlyPlayer(3).createEvaluators().sente().evaluate(root, candidates, HANDLER);
+        double best = Double.NEGATIVE_INFINITY;
+        for (var node : candidates) {
+            best = Math.max(best, threePly(node.getState()));
+        }
+        assertEquals(best, evaluated.getEval().getScore(), 1e-9);
+    }
+
+    @Test
+    public void filteredThreePly() {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(3, 1));
+
+        // この局面では、3Plyでの最善手が1Ply・2Plyでも上位に残るので、絞り込んでも結果は変わらない
+        var player = NPlyPlayer.<BackgammonState>builder()
+                .evs(SGTuple.of(PIPS))
+                .depth(3)
+                .nodeFactory(op::onDemandNode)
+                .filter(MoveFilter.of(1, 4, 0))
+                .filter(MoveFilter.of(2, 2, 0))
+                .build();
+        var evaluated = player.createEvaluators().sente().evaluate(root, candidates, HANDLER);
+        var expected = nPlyPlayer(3).createEvaluators().sente().evaluate(root, candidates, HANDLER);
+        assertEquals(expected.getEval().getScore(), evaluated.getEval().getScore(), 1e-9);
+
+        // 評価されるのは、絞り込まれた2手だけ
+        var count = new AtomicInteger();
+        player.createEvaluators().sente().evaluate(root, candidates, new TebanContextHandler<>() {
+            @Override
+            public void evaluateMove(BackgammonState state, Eval eval) {
+                count.incrementAndGet();
+            }
+        });
+        assertEquals(2, count.get());
+    }
+
+    @Test
+    public void filterGeneratesRepliesOnce() {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(3, 1));
+
+        var count = new AtomicInteger();
+        var player = NPlyPlayer.<BackgammonState>builder()
+                .evs(SGTuple.of(PIPS))
+                .depth(2)
+                .nodeFactory(countingNode(count))
+                .filter(MoveFilter.of(2, 1, 0))
+                .build();
+        var answer = player.createEvaluators().sente().evaluate(root, candidates, HANDLER);
+        var expected = nPlyPlayer(2).createEvaluators().sente().evaluate(root, candidates, HANDLER);
+        assertSame(expected.getStateNode().getState(), answer.getStateNode().getState());
+
+        // 絞り込みで全候補手、本来の深さで残った1手について、ロールごとに一度ずつ生成する
+        int rolls = op.listupRolls().size();
+        assertEquals((candidates.size() + 1) * rolls, count.get());
+    }
+
+    @Test
+    public void onePlyFilterEvaluatesAllAtOnce() {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(3, 1));
+
+        // 1局面ずつの評価と、まとめての評価の回数を数える
+        var singles = new AtomicInteger();
+        var batches = new ArrayList<Integer>();
+        StateEvaluator<BackgammonState> ev = new StateEvaluator<>() {
+            @Override
+            public Eval eval(BackgammonState state) {
+                singles.incrementAndGet();
+                return PIPS.eval(state);
+            }
+
+            @Override
+            public synchronized List<Eval> evalAll(List<BackgammonState> states) {
+                batches.add(states.size());
+                return states.stream().map(PIPS::eval).collect(Collectors.toList());
+            }
+        };
+        var player = NPlyPlayer.<BackgammonState>builder()
+                .evs(SGTuple.of(ev))
+                .depth(2)
+                .nodeFactory(op::onDemandNode)
+                .filter(MoveFilter.of(1, 2, 0))
+                .build();
+        player.createEvaluators().sente().evaluate(root, candidates, HANDLER);
+
+        // 絞り込みでは、全候補手を一度に評価する
+        assertEquals(0, singles.get());
+        assertEquals(candidates.size(), (int) batches.get(0));
+    }
+
+    @Test
+    public void runsOnGivenPool() throws InterruptedException {
+        var root = rootNode(BGType.mini);
+        var candidates = candidates(root, Roll.of(4, 1));
+        var grown = candidates.stream()
+                .map(node -> node.grow(op.listupRolls(), op::generateRoll, op::buildNextState))
+                .collect(Collectors.toList());
+
+        // 評価器が呼ばれたスレッドを記録する
+        var threads = ConcurrentHashMap.<Thread>newKeySet();
+        StateEvaluator<BackgammonState> ev = state -> {
+            threads.add(Thread.currentThread());
+            return PIPS.eval(state);
+        };
+
+        var pool = new ForkJoinPool(2);
+        try {
+            var twoPly = TwoPlyPlayer.<BackgammonState>builder().evs(SGTuple.of(ev)).pool(pool).build()
+                    .createEvaluators().sente().evaluate(root, grown, HANDLER);
+            var nPly = NPlyPlayer.<BackgammonState>builder()
+                    .evs(SGTuple.of(ev))
+                    .depth(2)
+                    .nodeFactory(op::onDemandNode)
+                    .pool(pool)
+                    .build()
+                    .createEvaluators().sente().evaluate(root, candidates, HANDLER);
+
+            assertEquals(twoPly.getEval().getScore(), nPly.getEval().getScore(), 1e-9);
+            for (Thread thread : threads) {
+                assertTrue(thread.getName(), thread instanceof ForkJoinWorkerThread
+                        && ((ForkJoinWorkerThread) thread).getPool() == pool);
+            }
+
+            // 集計はロール順に逐次行うので、何度評価しても全く同じ値になる
+            var again = TwoPlyPlayer.<BackgammonState>builder().evs(SGTuple.of(PIPS)).pool(pool).build()
+                    .createEvaluators().sente().evaluate(root, grown, HANDLER);
+            assertEquals(twoPly.getEval().getScore(), again.getEval().getScore(), 0);
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // 3Plyの評価値を、再帰を使わずに求める
+    private double threePly(BackgammonState state) {
+        double sum = 0;
+        double wSum = 0;
+        for (Roll roll : op.listupRolls()) {
+            double best = Double.NEGATIVE_INFINITY;
+            for (BackgammonState reply : op.buildNextState(state, roll)) {
+                double sum2 = 0;
+                double wSum2 = 0;
+                for (Roll roll2 : op.listupRolls()) {
+                    double best2 = Double.NEGATIVE_INFINITY;
+                    for (BackgammonState next : op.buildNextState(reply, roll2)) {
+                        best2 = Math.max(best2, PIPS.eval(next).getScore());
+                    }
+                    sum2 += best2 * roll2.getWeight();
+                    wSum2 += roll2.getWeight();
+                }
+                best = Math.max(best, -sum2 / wSum2);
+            }
+            sum += best * roll.getWeight();
+            wSum += roll.getWeight();
+        }
+        return -sum / wSum;
+    }
+
+    private NPlyPlayer<BackgammonState> nPlyPlayer(int depth) {
+        return NPlyPlayer.<BackgammonState>builder()
+                .evs(SGTuple.of(PIPS))
+                .depth(depth)
+                .nodeFactory(op::onDemandNode)
+                .build();
+    }
+}
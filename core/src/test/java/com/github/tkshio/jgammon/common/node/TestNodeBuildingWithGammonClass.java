@@ -7,9 +7,12 @@ import org.junit.Test;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 public class TestNodeBuildingWithGammonClass {
 
@@ -96,5 +99,90 @@ public class TestNodeBuildingWithGammonClass {
             assertEquals(21, rolls.size());
         });
     }
-}
 
+    @Test
+    public void runNodeOnDemand() {
+        BackgammonStateOperator stateOperator = BackgammonStateOperator.create();
+
+        Roll rolled = Roll.of(1, 2);
+        var initialState = stateOperator.whiteGoesFirst(BackgammonBoard.create(BGType.standard));
+        BackgammonDice bgDice = BackgammonDice.create();
+
+        // 子ノードを参照時に生成するノードに置き換える
+        var initialNode = IndexedStateNode.<BackgammonState, Roll>initialNode(initialState, () -> rolled)
+                .growOnDemand(Collections.singleton(rolled),
+                        bgDice.listupRolls(),
+                        bgDice::roll,
+                        stateOperator::buildNextState);
+
+        assertEquals(1, initialNode.getKeys().size());
+        assertEquals(rolled, initialNode.getKeys().iterator().next());
+
+        // 先に生成する場合と同様、1-2のムーブは15通りで、それぞれ21種類のロールに対する子ノードを持つ
+        var nextStates = initialNode.getNextStates();
+        assertEquals(15, nextStates.size());
+        nextStates.forEach(node -> {
+            assertEquals(21, node.getKeys().size());
+            assertEquals(21, node.getChildNodesEntries().size());
+        });
+
+        // 子ノードの内容は、先に生成したツリーと一致する
+        var grown = IndexedStateNode.<BackgammonState, Roll>initialNode(initialState, () -> rolled)
+                .grow(Collections.singleton(rolled), bgDice::roll, stateOperator::buildNextState)
+                .grow(bgDice.listupRolls(), bgDice::roll, stateOperator::buildNextState)
+                .getNextStates();
+        assertEquals(countGrandChildren(grown), countGrandChildren(nextStates));
+
+        // 子ノードは保持されず、参照のたびに生成し直される
+        var entry = nextStates.iterator().next().getChildNodesEntries().iterator().next();
+        assertNotSame(entry.getNodes(), entry.getNodes());
+        assertEquals(entry.getNodes().size(), entry.getNodes().size());
+    }
+
+    @Test
+    public void runNodeRetaining() {
+        BackgammonStateOperator stateOperator = BackgammonStateOperator.create();
+
+        Roll rolled = Roll.of(1, 2);
+        Roll reply = Roll.of(6, 6);
+        var initialState = stateOperator.whiteGoesFirst(BackgammonBoard.create(BGType.standard));
+        BackgammonDice bgDice = BackgammonDice.create();
+
+        // 次の手番では、相手のロールとして6-6を使う
+        var initialNode = IndexedStateNode.<BackgammonState, Roll>initialNode(initialState, () -> rolled)
+                .growRetaining(Collections.singleton(rolled),
+                        bgDice.listupRolls(),
+                        () -> reply,
+                        stateOperator::buildNextState);
+
+        var nextStates = initialNode.getNextStates();
+        assertEquals(15, nextStates.size());
+        assertSame(nextStates, initialNode.getNextStates());
+
+        // 子ノードは一度生成されたら保持される
+        var selected = nextStates.iterator().next();
+        var entry = selected.getChildNodesEntries().iterator().next();
+        assertSame(entry.getNodes(), entry.getNodes());
+
+        // 先読みで生成された応手は、次の手番の候補手としてそのまま使われる
+        // 子ノードのグループは、キーを列挙した順に並ぶ
+        var rolls = List.copyOf(bgDice.listupRolls());
+        var replyEntry = List.copyOf(selected.getChildNodesEntries()).get(rolls.indexOf(reply));
+        var candidates = selected.getNextStates();
+        assertSame(replyEntry.getNodes(), candidates);
+
+        // 生成済みの局面は、先読みの結果と一致する
+        var grown = IndexedStateNode.<BackgammonState, Roll>initialNode(initialState, () -> rolled)
+                .grow(Collections.singleton(rolled), bgDice::roll, stateOperator::buildNextState)
+                .grow(bgDice.listupRolls(), bgDice::roll, stateOperator::buildNextState)
+                .getNextStates();
+        assertEquals(countGrandChildren(grown), countGrandChildren(nextStates));
+    }
+
+    private long countGrandChildren(Collection<IndexedStateNode<BackgammonState, Roll>> nodes) {
+        return nodes.stream()
+                .flatMap(node -> node.getChildNodesEntries().stream())
+                .mapToLong(entry -> entry.getNodes().size())
+                .sum();
+    }
+}
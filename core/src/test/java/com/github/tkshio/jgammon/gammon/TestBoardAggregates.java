@@ -0,0 +1,77 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestBoardAggregates {
+    @Test
+    public void initialBoard() {
+        var board = BackgammonBoard.create(BGType.standard);
+        assertEquals(167, board.getPipCount());
+        assertEquals(167, board.getOpponentPipCount());
+        assertEquals(0, board.getBorneOffCount());
+        assertEquals(1, board.getHighestPos());
+        assertEquals(24, board.getOpponentHighestPos());
+        assertTrue(board.isContact());
+        assertFalse(board.isInBearingOff());
+    }
+
+    @Test
+    public void race() {
+        int[] init = {
+                0,
+                -2, 0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0, 0,
+                3, 0, 0, 0, 0, 0,
+                0
+        };
+        var board = BackgammonBoard.create(BGType.standard, init);
+        assertFalse(board.isContact());
+        assertTrue(board.isInBearingOff());
+        assertEquals(18, board.getPipCount());
+        assertEquals(2, board.getOpponentPipCount());
+        assertEquals(12, board.getBorneOffCount());
+        assertEquals(13, board.getOpponentBorneOffCount());
+    }
+
+    @Test
+    public void incrementalAggregatesMatchFullScan() {
+        // ランダムに進めた対局の各局面について、差分更新された値が走査した値と一致することを確認する
+        var op = BackgammonStateOperator.create();
+        Random r = new Random(4);
+        for (BGType bgType : BGType.values()) {
+            for (int game = 0; game < 20; game++) {
+                BackgammonState state = op.redGoesFirst(BackgammonBoard.create(bgType));
+                while (!state.getResult().isOver()) {
+                    var roll = Roll.of(1 + r.nextInt(6), 1 + r.nextInt(6));
+                    var next = new ArrayList<>(op.buildNextState(state, roll));
+                    for (var s : next) {
+                        assertSameAggregates(bgType, s.getBoard());
+                        assertSameAggregates(bgType, s.getRevertedBoard());
+                    }
+                    state = next.get(r.nextInt(next.size()));
+                }
+            }
+        }
+    }
+
+    private static void assertSameAggregates(BGType bgType, BackgammonBoard board) {
+        var rebuilt = BackgammonBoard.create(bgType, TestUtils.toIntArray(board));
+        assertEquals(rebuilt.getPipCount(), board.getPipCount());
+        assertEquals(rebuilt.getOpponentPipCount(), board.getOpponentPipCount());
+        assertEquals(rebuilt.getBorneOffCount(), board.getBorneOffCount());
+        assertEquals(rebuilt.getOpponentBorneOffCount(), board.getOpponentBorneOffCount());
+        assertEquals(rebuilt.getHighestPos(), board.getHighestPos());
+        assertEquals(rebuilt.getOpponentHighestPos(), board.getOpponentHighestPos());
+        assertEquals(rebuilt.isContact(), board.isContact());
+        assertEquals(rebuilt.isInBearingOff(), board.isInBearingOff());
+    }
+}
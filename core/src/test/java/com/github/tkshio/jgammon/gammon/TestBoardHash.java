@@ -0,0 +1,76 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.gammon.move.CheckerPlay;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class TestBoardHash {
+    @Test
+    public void incrementalHashMatchesFullHash() {
+        // ムーブ適用・反転で差分更新したハッシュ値が、同じ配置から生成した盤面と一致する
+        var applier = BackgammonBoardRollApplier.create();
+        for (BGType bgType : BGType.values()) {
+            var board = BackgammonBoard.create(bgType);
+            for (int r1 = 1; r1 <= 6; r1++) {
+                for (int r2 = 1; r2 <= r1; r2++) {
+                    applier.listupMoves(board, Roll.of(r1, r2)).forEach(checkerPlay -> {
+                        var after = board.withCheckerPlay(checkerPlay);
+                        assertSameHash(bgType, after);
+                        assertSameHash(bgType, after.revert());
+                        assertEquals(after.getRevertedHash(), after.revert().getHash());
+                    });
+                }
+            }
+        }
+    }
+
+    @Test
+    public void stableHash() {
+        // ハッシュ値は実行ごとに変わらない（キーの生成方法を変えた場合は、この値も更新する）
+        assertEquals(3974927219169707601L, BackgammonBoard.create(BGType.standard).getHash());
+        assertEquals(BackgammonBoard.create(BGType.standard).getHash(),
+                BackgammonBoard.create(BGType.standard, BGType.standard.initialArrangement(),
+                        BoardRepresentation.intArray).getHash());
+        assertNotEquals(BackgammonBoard.create(BGType.standard).getHash(),
+                BackgammonBoard.create(BGType.half).getHash());
+    }
+
+    @Test
+    public void stateEquality() {
+        var op = BackgammonStateOperator.create();
+        var board = BackgammonBoard.create(BGType.standard);
+        BackgammonState red = op.redGoesFirst(board);
+        BackgammonState white = op.whiteGoesFirst(board.revert());
+
+        // 盤面が同じでも手番側が違えば別の局面
+        assertEquals(red.getBoard(), white.getBoard());
+        assertNotEquals(red, white);
+        assertNotEquals(red.getHash(), white.getHash());
+
+        // 手数や直前のプレイは区別しない
+        var red2 = op.withCheckerPlay(op.withCheckerPlay(red, CheckerPlay.EMPTY), CheckerPlay.EMPTY);
+        assertEquals(red, red2);
+        assertEquals(red.hashCode(), red2.hashCode());
+    }
+
+    @Test
+    public void stateHashAfterPlay() {
+        // 局面のハッシュ値は、手番側の盤面のハッシュ値から求めたものと一致する
+        var op = BackgammonStateOperator.create();
+        BackgammonState state = op.redGoesFirst(BackgammonBoard.create(BGType.standard));
+        for (var next : op.buildNextState(state, Roll.of(6, 4))) {
+            assertEquals(next.getRevertedBoard().revert(), next.getBoard());
+            assertEquals(next.getBoard().getHash() ^ 0x9E3779B97F4A7C15L, next.getHash());
+        }
+    }
+
+    private static void assertSameHash(BGType bgType, BackgammonBoard board) {
+        var rebuilt = BackgammonBoard.create(bgType, TestUtils.toIntArray(board));
+        assertEquals(rebuilt.getHash(), board.getHash());
+        assertEquals(rebuilt.getRevertedHash(), board.getRevertedHash());
+        assertEquals(rebuilt, board);
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.gammon.move.CheckerPlay;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestBoardRepresentation {
+    @Test
+    public void packedBoardBehavesAsIntArrayBoard() {
+        // 全てのBGTypeについて、内部表現によらず同じ盤面が得られることを確認する
+        for (BGType bgType : BGType.values()) {
+            var packed = BackgammonBoard.create(bgType, bgType.initialArrangement(),
+                    BoardRepresentation.packed);
+            var intArray = BackgammonBoard.create(bgType, bgType.initialArrangement(),
+                    BoardRepresentation.intArray);
+
+            var applier = BackgammonBoardRollApplier.create();
+            for (int r1 = 1; r1 <= 6; r1++) {
+                for (int r2 = 1; r2 <= r1; r2++) {
+                    var roll = Roll.of(r1, r2);
+                    var plays = applier.listupMoves(packed, roll)
+                            .sorted(TestUtils::compare).toArray(CheckerPlay[]::new);
+                    var expected = applier.listupMoves(intArray, roll)
+                            .sorted(TestUtils::compare).toArray(CheckerPlay[]::new);
+                    assertEquals(expected.length, plays.length);
+
+                    for (int i = 0; i < plays.length; i++) {
+                        var p = packed.withCheckerPlay(plays[i]).revert();
+                        var e = intArray.withCheckerPlay(expected[i]).revert();
+                        assertArrayEquals(bgType + ":" + plays[i],
+                                TestUtils.toIntArray(e), TestUtils.toIntArray(p));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void packedBoardRejectsOverflow() {
+        int[] arr = new int[26];
+        arr[1] = 200;
+        BackgammonBoard.create(BGType.standard, arr, BoardRepresentation.packed);
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import org.junit.Test;
+
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestDistinctPlays {
+    private final int[] init = {
+            0,
+            -5, -1, -1, -2, 0, 0,
+            0, -1, 0, -1, 0, 0,
+            0, 0, 0, 0, 0, 0,
+            -1, 4, -2, 3, 5, -1,
+            0
+    };
+
+    @Test
+    public void collapseSameBoards() {
+        // 22/OFF 23/24* と 23/24* 22/OFF は同じ盤面になる
+        var op = BackgammonStateOperator.create();
+        var state = op.redGoesFirst(BackgammonBoard.create(BGType.standard, init));
+
+        var all = op.buildNextState(state, Roll.of(3, 1), false);
+        var distinct = op.buildNextState(state, Roll.of(3, 1), true);
+
+        assertEquals(5, all.size());
+        assertEquals(4, distinct.size());
+        assertEquals(
+                all.stream().map(BackgammonState::getBoard).collect(Collectors.toSet()),
+                distinct.stream().map(BackgammonState::getBoard).collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void defaultFollowsOperatorSetting() {
+        var board = BackgammonBoard.create(BGType.standard, init);
+        var op = BackgammonStateOperator.create(BackgammonDice.create(), true);
+        var state = op.redGoesFirst(board);
+
+        assertEquals(2, op.buildNextState(state, Roll.of(5, 1)).size());
+        assertEquals(4, op.buildNextState(state, Roll.of(5, 1), false).size());
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.gammon.move.CheckerPlay;
+import com.github.tkshio.jgammon.gammon.move.Move;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import com.github.tkshio.jgammon.gammon.utils.RollUtils;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class TestFlyweights {
+    @Test
+    public void rollsAreShared() {
+        assertSame(Roll.of(5, 3), Roll.of(3, 5));
+
+        // 21通りのロールに、重複のない通し番号が振られる
+        var indices = new HashSet<Integer>();
+        for (Roll roll : RollUtils.listupAllRolls(6)) {
+            assertSame(roll, Roll.of(roll.getHigherNumber(), roll.getLowerNumber()));
+            indices.add(roll.getIndex());
+        }
+        assertEquals(21, indices.size());
+        assertEquals(0, (int) indices.stream().min(Integer::compare).orElseThrow());
+        assertEquals(20, (int) indices.stream().max(Integer::compare).orElseThrow());
+
+        // 範囲外のロールも生成はできる
+        assertEquals(-1, Roll.of(7, 1).getIndex());
+        assertEquals(Roll.of(7, 1), Roll.of(1, 7));
+    }
+
+    @Test
+    public void movesAreShared() {
+        assertSame(Move.of(1, 4, true), Move.of(1, 4, true));
+        assertNotSame(Move.of(1, 4, true), Move.of(1, 4, false));
+        assertSame(Move.bearOff(22), Move.of(22, -1, false));
+        assertEquals(Move.of(100, 104, false), Move.of(100, 104, false));
+    }
+
+    @Test
+    public void emptyPlaysAreShared() {
+        assertSame(CheckerPlay.of(Roll.of(6, 6)), CheckerPlay.of(Roll.of(6, 6)));
+        assertEquals(0, CheckerPlay.EMPTY.getMoves().length);
+
+        // ムーブのあるプレイは、引数の配列を複製して保持する
+        Move[] moves = {Move.of(1, 4)};
+        var play = CheckerPlay.of(Roll.of(3, 1), moves);
+        moves[0] = Move.of(1, 2);
+        assertEquals(Move.of(1, 4), play.getMoves()[0]);
+    }
+}
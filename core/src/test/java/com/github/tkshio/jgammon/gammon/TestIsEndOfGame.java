@@ -53,6 +53,23 @@ public class TestIsEndOfGame {
 
     }
 
+    @Test
+    public void sameResultForWhite() {
+        // White側の局面は手番側の盤面を反転で得るので、同じ判定になることを確認する
+        int[] init = {
+                0,
+                0, 0, 0, 0, 0, 0,
+                0, 0, 0, 0, 14, 0,
+                0, 0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0, 1,
+                0
+        };
+        var board = BackgammonBoard.create(BGType.standard, init);
+        BackgammonState white = BackgammonStateOperator.create().whiteGoesFirst(board.revert());
+        assertEquals(board, white.getBoard());
+        assertEquals(BackgammonResult.Gammon, white.getResult());
+    }
+
     private BackgammonState buildState(int[] init) {
         BackgammonBoard board = BackgammonBoard.create(BGType.standard, init);
         return BackgammonStateOperator.create().redGoesFirst(board);
@@ -0,0 +1,47 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.gammon.move.BGMovesSupplier;
+import com.github.tkshio.jgammon.gammon.move.LoopBGMovesSupplier;
+import com.github.tkshio.jgammon.gammon.move.Move;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TestLoopBGMovesSupplier {
+    @Test
+    public void encodeAndDecode() {
+        assertSame(Move.of(3, 8, true), LoopBGMovesSupplier.decode(LoopBGMovesSupplier.encode(3, 8, true)));
+        assertSame(Move.of(0, 4, false), LoopBGMovesSupplier.decode(LoopBGMovesSupplier.encode(0, 4, false)));
+        assertSame(Move.bearOff(20), LoopBGMovesSupplier.decode(LoopBGMovesSupplier.encode(20, -1, false)));
+    }
+
+    @Test
+    public void sameAsBGMovesSupplier() {
+        // ランダムに進めた対局の各局面について、全位置・全ロール目の列挙結果をストリームによる実装と比較する
+        Random r = new Random(2);
+
+        for (BGType bgType : BGType.values()) {
+            TestUtils.forEachRandomPosition(bgType, r, 20, board -> {
+                int[] buffer = new int[LoopBGMovesSupplier.bufferSize(board)];
+                for (int from = 0; from < board.getBearOffPos(); from++) {
+                    for (int roll = 1; roll <= 6; roll++) {
+                        var expected = BGMovesSupplier.listupWithDefaultRule(board, from, roll)
+                                .toArray(Move[]::new);
+                        int n = LoopBGMovesSupplier.listupWithDefaultRule(board, from, roll, buffer);
+                        assertEquals(expected.length, n);
+                        for (int i = 0; i < n; i++) {
+                            assertSame(expected[i], LoopBGMovesSupplier.decode(buffer[i]));
+                        }
+                        assertArrayEquals(expected,
+                                LoopBGMovesSupplier.listupWithDefaultRule(board, from, roll)
+                                        .toArray(Move[]::new));
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.gammon.move.BGBoard;
+import com.github.tkshio.jgammon.gammon.move.CheckerPlay;
+import com.github.tkshio.jgammon.gammon.move.MakeUnmakeRollApplier;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import com.github.tkshio.jgammon.gammon.utils.RollUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestMakeUnmakeRollApplier {
+    @Test
+    public void sameAsMovesStackApplier() {
+        // ランダムに進めた対局の各局面について、全ロールの列挙結果を従来の実装と比較する
+        var expectedApplier = BackgammonBoardRollApplier.create();
+        var applier = BackgammonBoardRollApplier.createMakeUnmake();
+        List<Roll> rolls = new ArrayList<>(RollUtils.listupAllRolls(6));
+        Random r = new Random(1);
+
+        for (BGType bgType : BGType.values()) {
+            TestUtils.forEachRandomPosition(bgType, r, 20, board -> {
+                for (Roll roll : rolls) {
+                    var expected = expectedApplier.listupMoves(board, roll)
+                            .sorted(TestUtils::compare).toArray(CheckerPlay[]::new);
+                    var answer = applier.listupMoves(board, roll)
+                            .sorted(TestUtils::compare).toArray(CheckerPlay[]::new);
+                    assertArrayEquals(bgType + " " + roll, expected, answer);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void resultingBoards() {
+        // コールバックで渡される盤面が、プレイを適用した盤面と一致することを確認する
+        BackgammonBoard board = BackgammonBoard.create(BGType.standard);
+        MakeUnmakeRollApplier<BackgammonBoard> applier = MakeUnmakeRollApplier.create();
+        List<int[]> boards = new ArrayList<>();
+        List<CheckerPlay> plays = new ArrayList<>();
+        BGBoard[] scratch = new BGBoard[1];
+        applier.forEachPlay(board, Roll.of(3, 3), (roll, moves, length, after) -> {
+            scratch[0] = after;
+            int[] points = new int[board.size()];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = after.getPointAt(i);
+            }
+            boards.add(points);
+            plays.add(CheckerPlay.of(roll, Arrays.copyOf(moves, length)));
+        });
+
+        assertEquals(plays.size(), boards.size());
+        for (int i = 0; i < plays.size(); i++) {
+            assertArrayEquals(TestUtils.toIntArray(board.withCheckerPlay(plays.get(i))), boards.get(i));
+        }
+        // コールバックに渡された作業用盤面は、列挙の終了後には元の盤面に戻っている
+        int[] restored = new int[board.size()];
+        for (int i = 0; i < restored.length; i++) {
+            restored[i] = scratch[0].getPointAt(i);
+        }
+        assertArrayEquals(BGType.standard.initialArrangement(), restored);
+    }
+}
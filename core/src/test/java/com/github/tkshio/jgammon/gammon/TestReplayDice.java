@@ -0,0 +1,37 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.common.dice.SplittableDice;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TestReplayDice {
+    @Test
+    public void replaysSameRolls() {
+        var dice = ReplayDice.create(BackgammonDice.create(SplittableDice.create(6, 3)));
+
+        var opening = dice.rollOpening();
+        var firstRolls = rolls(dice, 10);
+
+        // 2回目は同じオープニングロールから、記録を超えた分も含めて同じ出目を再生する
+        assertSame(opening, dice.rollOpening());
+        var secondRolls = rolls(dice, 20);
+        assertEquals(firstRolls, secondRolls.subList(0, 10));
+
+        dice.rollOpening();
+        assertEquals(secondRolls, rolls(dice, 20));
+    }
+
+    private static List<Roll> rolls(BackgammonDice dice, int n) {
+        List<Roll> rolls = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            rolls.add(dice.roll());
+        }
+        return rolls;
+    }
+}
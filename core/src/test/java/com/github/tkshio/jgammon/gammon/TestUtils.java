@@ -2,9 +2,15 @@ package com.github.tkshio.jgammon.gammon;
 
 import com.github.tkshio.jgammon.gammon.move.CheckerPlay;
 import com.github.tkshio.jgammon.gammon.move.Move;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import com.github.tkshio.jgammon.gammon.utils.RollUtils;
 import com.github.tkshio.jgammon.gammon.utils.SimpleNotation;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
 
 import static org.junit.Assert.assertEquals;
 
@@ -56,6 +62,47 @@ public final class TestUtils {
         );
     }
 
+    /**
+     * ランダムに進めた対局の各局面（手番側の観点）について、actionを呼び出す
+     *
+     * @param bgType 盤面の種類
+     * @param r      ロール・プレイの選択に使用する乱数
+     * @param games  対局数
+     * @param action 各局面に対する処理
+     */
+    public static void forEachRandomPosition(BGType bgType, Random r, int games, Consumer<BackgammonBoard> action) {
+        var applier = BackgammonBoardRollApplier.create();
+        List<Roll> rolls = new ArrayList<>(RollUtils.listupAllRolls(6));
+        for (int game = 0; game < games; game++) {
+            var board = BackgammonBoard.create(bgType);
+            for (int ply = 0; ply < 200; ply++) {
+                action.accept(board);
+
+                var roll = rolls.get(r.nextInt(rolls.size()));
+                var plays = applier.listupMoves(board, roll).toArray(CheckerPlay[]::new);
+                board = board.withCheckerPlay(plays[r.nextInt(plays.length)]).revert();
+                if (isOver(board)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // どちらかの駒がすべて上がっていれば終了
+    private static boolean isOver(BackgammonBoard board) {
+        int own = 0;
+        int opponent = 0;
+        for (int i = 0; i < board.size(); i++) {
+            int n = board.getPointAt(i);
+            if (n > 0) {
+                own += n;
+            } else {
+                opponent -= n;
+            }
+        }
+        return own == 0 || opponent == 0;
+    }
+
     public static int[] toIntArray(BackgammonBoard board) {
         int[] result = new int[board.size()];
         for (int i = 0; i < result.length; i++) {
@@ -0,0 +1,93 @@
+package com.github.tkshio.jgammon.gammon.director;
+
+import com.github.tkshio.jgammon.common.utils.SGTuple;
+import com.github.tkshio.jgammon.gammon.BGType;
+import com.github.tkshio.jgammon.gammon.BackgammonBoard;
+import com.github.tkshio.jgammon.gammon.BackgammonState;
+import com.github.tkshio.jgammon.gammon.BackgammonStateOperator;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import org.junit.Test;
+
+import static com.github.tkshio.jgammon.common.evaluator.EvaluatorTestUtils.PIPS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestRolloutEvaluator {
+    private final BackgammonStateOperator op = BackgammonStateOperator.create();
+
+    @Test
+    public void truncatedAtOnePly() {
+        var state = op.buildNextState(
+                op.redGoesFirst(BackgammonBoard.create(BGType.standard)), Roll.of(3, 1))
+                .iterator().next();
+
+        // 相手の応手を評価して平均する、2Plyと同じ値
+        double sum = 0;
+        double wSum = 0;
+        for (Roll roll : op.listupRolls()) {
+            double best = Double.NEGATIVE_INFINITY;
+            for (BackgammonState next : op.buildNextState(state, roll)) {
+                best = Math.max(best, PIPS.eval(next).getScore());
+            }
+            sum += best * roll.getWeight();
+            wSum += roll.getWeight();
+        }
+        double expected = -sum / wSum;
+
+        // 最初のロールは36通りを順に割り当てるので、36回の試行で期待値に一致する
+        var plain = RolloutEvaluator.builder()
+                .evs(SGTuple.of(PIPS))
+                .trials(36)
+                .truncation(1)
+                .varianceReduction(false)
+                .build()
+                .eval(state);
+        assertEquals(expected, plain.getScore(), 1e-9);
+        assertTrue(plain.getStandardError() > 0);
+
+        // ツキを補正すると、1手で打ち切った場合は試行回数によらず分散がなくなる
+        var reduced = RolloutEvaluator.builder()
+                .evs(SGTuple.of(PIPS))
+                .trials(5)
+                .truncation(1)
+                .build()
+                .eval(state);
+        assertEquals(expected, reduced.getScore(), 1e-9);
+        assertEquals(0, reduced.getStandardError(), 1e-9);
+    }
+
+    @Test
+    public void reproducibleWithSeed() {
+        var state = op.buildNextState(
+                op.redGoesFirst(BackgammonBoard.create(BGType.mini)), Roll.of(6, 5))
+                .iterator().next();
+
+        var evaluator = RolloutEvaluator.builder()
+                .evs(SGTuple.of(PIPS))
+                .trials(36)
+                .truncation(6)
+                .seed(1L)
+                .build();
+        var first = evaluator.eval(state);
+        var second = evaluator.eval(state);
+        assertEquals(first.getScore(), second.getScore(), 0);
+        assertTrue(first.getLowerBound() <= first.getScore());
+        assertTrue(first.getScore() <= first.getUpperBound());
+    }
+
+    @Test
+    public void playsToTheEnd() {
+        var state = op.buildNextState(
+                op.redGoesFirst(BackgammonBoard.create(BGType.mini)), Roll.of(6, 5))
+                .iterator().next();
+
+        // 打ち切らなければ、結果は勝ち点の範囲に収まる
+        var eval = RolloutEvaluator.builder()
+                .evs(SGTuple.of(PIPS))
+                .trials(8)
+                .varianceReduction(false)
+                .build()
+                .eval(state);
+        assertTrue(-3 <= eval.getScore() && eval.getScore() <= 3);
+    }
+}
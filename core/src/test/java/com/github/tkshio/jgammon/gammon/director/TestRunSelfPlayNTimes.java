@@ -1,10 +1,33 @@
 package com.github.tkshio.jgammon.gammon.director;
 
+import com.github.tkshio.jgammon.common.context.BundledGameContextHandler;
+import com.github.tkshio.jgammon.common.context.GameContextHandler;
+import com.github.tkshio.jgammon.common.context.SPRTGameContextHandler;
+import com.github.tkshio.jgammon.common.dice.SplittableDice;
+import com.github.tkshio.jgammon.common.director.GameInfo;
+import com.github.tkshio.jgammon.common.director.Player;
+import com.github.tkshio.jgammon.common.evaluator.BatchingEvaluation;
+import com.github.tkshio.jgammon.common.evaluator.CachedStateEvaluator;
 import com.github.tkshio.jgammon.common.evaluator.NodesEvaluator;
+import com.github.tkshio.jgammon.common.evaluator.OnePlyPlayer;
+import com.github.tkshio.jgammon.common.evaluator.StateEvaluator;
+import com.github.tkshio.jgammon.common.evaluator.TwoPlyPlayer;
 import com.github.tkshio.jgammon.common.utils.SGTuple;
+import com.github.tkshio.jgammon.gammon.BackgammonDice;
 import com.github.tkshio.jgammon.gammon.BackgammonState;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 public class TestRunSelfPlayNTimes {
     SGTuple<NodesEvaluator<BackgammonState>> evs = TestBackgammonNodeDirector.evs;
 
@@ -20,5 +43,268 @@ public class TestRunSelfPlayNTimes {
         BackgammonAutoPlay.builder().build().run(3);
     }
 
+    @Test
+    public void runParallel() throws InterruptedException {
+        // 並列度によらず、通知の内容と順序は同じになる
+        var expected = runWith(new ForkJoinPool(1));
+        var answer = runWith(new ForkJoinPool(4));
+        assertEquals(expected, answer);
+
+        // 対局ごとに独立したダイスを使えば、1局ずつ順に実行した場合とも一致する
+        assertEquals(expected, runWith(null));
+
+        assertEquals("start 10", expected.get(0));
+        assertEquals("game 10 0-0", expected.get(1));
+        assertTrue(expected.get(expected.size() - 1), expected.get(expected.size() - 1).startsWith("end 12 "));
+    }
+
+    @Test
+    public void runDuplicate() throws InterruptedException {
+        // 同じプレイヤーどうしなら、組の2局は色が入れ替わるだけで同じ進行となり、得失点の差は0になる
+        var expected = runWith(new ForkJoinPool(1), true);
+        assertEquals(expected, runWith(new ForkJoinPool(3), true));
+
+        int first = expected.indexOf("game 10 0-0");
+        int second = first + 1;
+        while (!expected.get(second).startsWith("game 11 ")) {
+            second++;
+        }
+        var firstPlys = expected.subList(first + 1, second - 1);
+        var secondPlys = expected.subList(second + 1, second + 1 + firstPlys.size());
+        assertEquals(firstPlys, secondPlys);
+
+        var summary = "Duplicate(NONAME): pairs:6 ppg:+0.0000 (se:0.0000, 95%CI:[+0.0000, +0.0000])";
+        assertEquals(summary, expected.get(expected.size() - 1));
+
+        // 1局ずつ順に実行する場合も、組ごとに同じダイスを使うので、通知の内容と順序は同じになる
+        assertEquals(expected, runWith(null, true));
+    }
+
+    @Test
+    public void runDuplicateWithDifferentPlayers() throws InterruptedException {
+        // 組の集計は、whiteに指定されたプレイヤーの観点での1局あたりの得失点となる
+        // 符号の誤りがわかるよう、得失点の差が0にならない乱数系列を使う
+        var r = new Random(3);
+        var random = OnePlyPlayer.<BackgammonState>builder()
+                .evs(SGTuple.of(state -> r::nextGaussian))
+                .name("Random")
+                .build();
+        var log = runWith(null, true, pipCountPlayer(), random);
+        var end = log.stream().filter(line -> line.startsWith("end ")).findFirst().orElseThrow().split(" ");
+        int redPoints = Integer.parseInt(end[2]);
+        int whitePoints = Integer.parseInt(end[3]);
+        assertTrue(whitePoints != redPoints);
+
+        var ppg = String.format("ppg:%+.4f ", (whitePoints - redPoints) / 12.0);
+        var summary = log.get(log.size() - 1);
+        assertTrue(summary, summary.startsWith("Duplicate(NONAME): pairs:6 " + ppg));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void runDuplicateOddTimes() {
+        BackgammonAutoPlay.builder().duplicate(true).build().run(3);
+    }
+
+    @Test
+    public void runLockstep() throws InterruptedException {
+        // 並行する対局の評価をまとめても、通知の内容と順序は変わらない
+        var expected = runWith(new ForkJoinPool(1));
+
+        var batching = BatchingEvaluation.<BackgammonState>create(10_000);
+        var answer = runWith(new ForkJoinPool(4), false, OnePlyPlayer.<BackgammonState>builder()
+                .evs(SGTuple.of(batching.wrap(pipCountEvaluator())))
+                .build());
+        assertEquals(expected, answer);
+
+        // 各ステップで、複数の対局の候補手がまとめて評価されている
+        assertTrue(batching.getBatches() > 0);
+        int plys = (int) expected.stream().filter(line -> line.startsWith("red ") || line.startsWith("white ")).count();
+        assertTrue(batching.getBatches() + " batches for " + plys + " plys", batching.getBatches() < plys);
+    }
+
+    @Test
+    public void runReusingTree() {
+        var count = new AtomicInteger();
+        StateEvaluator<BackgammonState> counting = state -> {
+            count.incrementAndGet();
+            return pipCountEvaluator().eval(state);
+        };
+        var cached = CachedStateEvaluator.create(counting, BackgammonState::getHash);
+
+        // 赤の候補手は、直前の白の2Plyの先読みで評価済みなので、評価器は呼ばれない
+        List<Integer> redEvaluations = new ArrayList<>();
+        int[] before = new int[1];
+        BackgammonAutoPlay.builder()
+                .dConf(BackgammonDirectorConf.twoPlyDirectorConf(true))
+                .white(TwoPlyPlayer.<BackgammonState>builder().evs(SGTuple.of(cached)).build())
+                .red(OnePlyPlayer.<BackgammonState>builder().evs(SGTuple.of(cached)).build())
+                .contextHandler(new GameContextHandler<>() {
+                    @Override
+                    public void beginRedPly(String label, BackgammonState state) {
+                        before[0] = count.get();
+                    }
+
+                    @Override
+                    public void endRedPly(String label, BackgammonState state) {
+                        // 赤の初手には、先読みした白の手番がない
+                        if (state.getPly() > 1) {
+                            redEvaluations.add(count.get() - before[0]);
+                        }
+                    }
+                })
+                .bgDice(BackgammonDice.create(SplittableDice.create(6, 7, 10)))
+                .build()
+                .run(1);
+
+        assertTrue(redEvaluations.size() > 0);
+        redEvaluations.forEach(n -> assertEquals(0, (int) n));
+        assertTrue(cached.getHitCount() > 0);
+    }
 
+    @Test
+    public void runUntilDecided() throws InterruptedException {
+        // ピップ数で評価するプレイヤーは、ランダムなプレイヤーに7割程度勝つので、早期に判定できる
+        assertStopsEarly(null);
+        var pool = new ForkJoinPool(2);
+        try {
+            assertStopsEarly(pool);
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private void assertStopsEarly(ForkJoinPool pool) {
+        Player<BackgammonState> candidate = pipCountPlayer();
+        var sprt = SPRTGameContextHandler.create(candidate, 0.45, 0.55, 0.01, 0.01);
+        List<String> msgs = new ArrayList<>();
+        var games = new int[1];
+
+        BackgammonAutoPlay.builder()
+                .white(candidate)
+                .contextHandler(BundledGameContextHandler.<BackgammonState>builder()
+                        .handler(sprt)
+                        .handler(new GameContextHandler<>() {
+                            @Override
+                            public void startGame(GameInfo info, BackgammonState initialState) {
+                                games[0]++;
+                            }
+
+                            @Override
+                            public void endTrials(long total, String redLabel, int redPoints,
+                                                  String whiteLabel, int whitePoints, String... m) {
+                                msgs.addAll(List.of(m));
+                            }
+                        })
+                        .build())
+                .pool(pool)
+                .stopCondition(sprt::isDecided)
+                .summary(sprt::summarize)
+                .bgDice(BackgammonDice.create(SplittableDice.create(6, 11)))
+                .diceFactory(gameNo -> BackgammonDice.create(SplittableDice.create(6, 11, gameNo)))
+                .build()
+                .run(200);
+
+        assertEquals(SPRTGameContextHandler.Decision.ACCEPT_H1, sprt.getDecision());
+        assertTrue(games[0] < 200);
+        assertEquals(sprt.summarize(), msgs.get(msgs.size() - 2));
+        assertEquals("Stopped after " + games[0] + " of 200 games", msgs.get(msgs.size() - 1));
+    }
+
+    private static String describe(GameInfo info) {
+        return info.getGameNo() + " " + info.getPoints().red() + "-" + info.getPoints().white();
+    }
+
+    private List<String> runWith(ForkJoinPool pool) throws InterruptedException {
+        return runWith(pool, false);
+    }
+
+    private List<String> runWith(ForkJoinPool pool, boolean duplicate) throws InterruptedException {
+        // 手の選択が乱数によらないよう、自分のピップ数で評価するプレイヤーを使う
+        return runWith(pool, duplicate, pipCountPlayer());
+    }
+
+    private List<String> runWith(ForkJoinPool pool, boolean duplicate,
+                                 Player<BackgammonState> player) throws InterruptedException {
+        return runWith(pool, duplicate, player, player);
+    }
+
+    private List<String> runWith(ForkJoinPool pool, boolean duplicate,
+                                 Player<BackgammonState> white,
+                                 Player<BackgammonState> red) throws InterruptedException {
+        List<String> log = new ArrayList<>();
+        GameContextHandler<BackgammonState> handler = new GameContextHandler<>() {
+            @Override
+            public void startTrials(int fromInclusive, int n) {
+                log.add("start " + fromInclusive);
+            }
+
+            @Override
+            public void startGame(GameInfo info, BackgammonState initialState) {
+                log.add("game " + describe(info));
+            }
+
+            @Override
+            public void endRedPly(String label, BackgammonState state) {
+                log.add("red " + state.getPly() + " " + state.getHash());
+            }
+
+            @Override
+            public void endWhitePly(String label, BackgammonState state) {
+                log.add("white " + state.getPly() + " " + state.getHash());
+            }
+
+            @Override
+            public void redWin(GameInfo info, Player<BackgammonState> winner,
+                               Player<BackgammonState> loser, BackgammonState finalState) {
+                log.add("red won " + describe(info));
+            }
+
+            @Override
+            public void whiteWin(GameInfo info, Player<BackgammonState> winner,
+                                 Player<BackgammonState> loser, BackgammonState finalState) {
+                log.add("white won " + describe(info));
+            }
+
+            @Override
+            public void endTrials(long total, String redLabel, int redPoints,
+                                  String whiteLabel, int whitePoints, String... msgs) {
+                log.add("end " + total + " " + redPoints + " " + whitePoints);
+                Stream.of(msgs).filter(msg -> msg.startsWith("Duplicate")).forEach(log::add);
+            }
+        };
+
+        try {
+            BackgammonAutoPlay.builder()
+                    .white(white)
+                    .red(red)
+                    .contextHandler(handler)
+                    .pool(pool)
+                    .duplicate(duplicate)
+                    .lookAhead(2)
+                    .bgDice(BackgammonDice.create(SplittableDice.create(6, 7, 10)))
+                    .diceFactory(gameNo -> BackgammonDice.create(SplittableDice.create(6, 7, gameNo)))
+                    .build()
+                    .run(10, 12);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+                pool.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        }
+        return log;
+    }
+
+    private static Player<BackgammonState> pipCountPlayer() {
+        return OnePlyPlayer.<BackgammonState>builder()
+                .evs(SGTuple.of(pipCountEvaluator()))
+                .build();
+    }
+
+    private static StateEvaluator<BackgammonState> pipCountEvaluator() {
+        return state -> {
+            double score = -state.getRevertedBoard().getPipCount();
+            return () -> score;
+        };
+    }
 }
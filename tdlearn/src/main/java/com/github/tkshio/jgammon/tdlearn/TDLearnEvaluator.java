@@ -11,6 +11,10 @@ import com.github.tkshio.jgammon.tdlearn.nntd.NNTDLFactory;
 import com.github.tkshio.jgammon.tdlearn.nntd.NNTDLearner;
 import com.github.tkshio.jgammon.tdlearn.td.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * {@link TDLearner}オブジェクトをラップし、{@link StateEvaluator}の対として提供するクラス
  *
@@ -96,7 +100,24 @@ public class TDLearnEvaluator<STATE> {
             @Override
             public Eval eval(STATE state) {
                 double[] input = inputCodec.encode(state);
-                TDEval<G> TDEval = tdLearner.eval(input);
+                return toEval(state, tdLearner.eval(input));
+            }
+
+            @Override
+            public List<Eval> evalAll(List<STATE> states) {
+                // 入力をまとめて評価器に渡し、一度に順伝播させる
+                double[][] inputs = new double[states.size()][];
+                Arrays.setAll(inputs, i -> inputCodec.encode(states.get(i)));
+                List<TDEval<G>> tdEvals = tdLearner.evalAll(inputs);
+
+                List<Eval> evals = new ArrayList<>(states.size());
+                for (int i = 0; i < inputs.length; i++) {
+                    evals.add(toEval(states.get(i), tdEvals.get(i)));
+                }
+                return evals;
+            }
+
+            private Eval toEval(STATE state, TDEval<G> TDEval) {
                 DecodedEval<STATE> eval = outputCodec.decode(TDEval.getOutput(), state);
                 return new Eval() {
                     @Override
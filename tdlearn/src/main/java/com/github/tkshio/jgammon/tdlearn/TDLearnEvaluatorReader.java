@@ -125,23 +125,44 @@ public class TDLearnEvaluatorReader {
                                    InputCodec<STATE> inputCodec,
                                    OutputCodec<STATE> outputCodec
     ) {
-        return state -> {
-            double[] in = inputCodec.encode(state);
-            double[] out = tdLearner.eval(in).getOutput();
-            var eval = outputCodec
-                    .decode(out, state);
-
-            return new Eval() {
-                @Override
-                public String asString() {
-                    return eval.getDescription().apply(state);
-                }
+        return new StateEvaluator<>() {
+            @Override
+            public Eval eval(STATE state) {
+                double[] in = inputCodec.encode(state);
+                double[] out = tdLearner.eval(in).getOutput();
+                return toEval(state, out);
+            }
+
+            @Override
+            public List<Eval> evalAll(List<STATE> states) {
+                // 入力をまとめて評価器に渡し、一度に順伝播させる
+                double[][] inputs = new double[states.size()][];
+                Arrays.setAll(inputs, i -> inputCodec.encode(states.get(i)));
+                var tdEvals = tdLearner.evalAll(inputs);
 
-                @Override
-                public double getScore() {
-                    return eval.getValue();
+                List<Eval> evals = new ArrayList<>(states.size());
+                for (int i = 0; i < inputs.length; i++) {
+                    evals.add(toEval(states.get(i), tdEvals.get(i).getOutput()));
                 }
-            };
+                return evals;
+            }
+
+            private Eval toEval(STATE state, double[] out) {
+                var eval = outputCodec
+                        .decode(out, state);
+
+                return new Eval() {
+                    @Override
+                    public String asString() {
+                        return eval.getDescription().apply(state);
+                    }
+
+                    @Override
+                    public double getScore() {
+                        return eval.getValue();
+                    }
+                };
+            }
         };
     }
 
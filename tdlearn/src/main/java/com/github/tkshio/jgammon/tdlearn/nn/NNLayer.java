@@ -19,6 +19,19 @@ public interface NNLayer<MATRIX> {
      */
     Matrix<MATRIX> apply(Matrix<MATRIX> input);
 
+    /**
+     * 複数の入力を行として並べた行列をまとめてこの層に与え、各入力に対する出力を同じ順に行として並べた行列を得る
+     *
+     * @param inputs 入力を行として並べた行列
+     * @param ones   {@code inputs}と同じ行数の、要素がすべて1の列ベクトル。バイアスを各行に加えるのに使う
+     * @return 出力
+     */
+    default Matrix<MATRIX> applyAll(Matrix<MATRIX> inputs, Matrix<MATRIX> ones) {
+        return inputs.multiply(getWeight())
+                .add(ones.multiply(getBias()))
+                .sigmoid();
+    }
+
 
     /**
      * 重みとバイアスを指定の更新量で更新した、新しいオブジェクトを返す
@@ -1,5 +1,6 @@
 package com.github.tkshio.jgammon.tdlearn.nntd;
 
+import com.github.tkshio.jgammon.tdlearn.matrix.Matrix;
 import com.github.tkshio.jgammon.tdlearn.matrix.MatrixFactory;
 import com.github.tkshio.jgammon.tdlearn.nn.NNLayer;
 import com.github.tkshio.jgammon.tdlearn.nn.NNLayerAmount;
@@ -7,6 +8,8 @@ import com.github.tkshio.jgammon.tdlearn.nn.NNLayerGradient;
 import com.github.tkshio.jgammon.tdlearn.td.TDEval;
 import com.github.tkshio.jgammon.tdlearn.td.TDLearner;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -48,6 +51,42 @@ public class NNTDLearner<MATRIX> implements TDLearner<NNTDDelta<MATRIX>,
         var hiddenOut = hiddenLayer.apply(inputMatrix);
         var outputOut = outputLayer.apply(hiddenOut);
 
+        return createTDEval(inputMatrix, hiddenOut, outputOut);
+    }
+
+    @Override
+    public List<TDEval<NNTDGradient<MATRIX>>> evalAll(double[][] inputs) {
+        if (inputs.length == 0) {
+            return Collections.emptyList();
+        }
+
+        // 順伝播の途中で更新されても同じ重みを使うよう、手元に保持しておく
+        var hidden = hiddenLayer;
+        var output = outputLayer;
+
+        // 入力を行として積み上げ、一度の行列積でまとめて順伝播させる
+        double[][] ones = new double[inputs.length][1];
+        for (double[] row : ones) {
+            row[0] = 1;
+        }
+        var onesMatrix = matrixFactory.create(ones);
+        var inputMatrix = matrixFactory.create(inputs);
+        var hiddenOut = hidden.applyAll(inputMatrix, onesMatrix);
+        var outputOut = output.applyAll(hiddenOut, onesMatrix);
+
+        // 勾配は行ごとに、個別に評価した場合と同じく必要になった時点で求める
+        List<TDEval<NNTDGradient<MATRIX>>> evals = new ArrayList<>(inputs.length);
+        for (int i = 0; i < inputs.length; i++) {
+            evals.add(createTDEval(inputMatrix.getRowMatrix(i),
+                    hiddenOut.getRowMatrix(i),
+                    outputOut.getRowMatrix(i)));
+        }
+        return evals;
+    }
+
+    private TDEval<NNTDGradient<MATRIX>> createTDEval(Matrix<MATRIX> inputMatrix,
+                                                     Matrix<MATRIX> hiddenOut,
+                                                     Matrix<MATRIX> outputOut) {
         // TDLearnはこの二つの勾配を受け取り、次回の学習時の誤差を掛けて更新量を得る
         Supplier<NNTDGradient<MATRIX>> gradient = () ->
         {
@@ -1,5 +1,8 @@
 package com.github.tkshio.jgammon.tdlearn.td;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Temporal Learingにおいて、学習側が{@link TDTrainer}に対して提供するべき機能
@@ -17,6 +20,20 @@ public interface TDLearner<DELTA, GRADIENT> {
      */
     TDEval<GRADIENT> eval(double[] input);
 
+    /**
+     * 複数の入力値をまとめて評価する
+     *
+     * <p>デフォルトの実装は、単に{@link #eval(double[])}を順に呼び出す。
+     *
+     * @param inputs 入力値の配列
+     * @return 評価結果のリスト、{@code inputs}と同じ順に並ぶ
+     */
+    default List<TDEval<GRADIENT>> evalAll(double[][] inputs) {
+        return Arrays.stream(inputs)
+                .map(this::eval)
+                .collect(Collectors.toList());
+    }
+
     /**
      * {@link TDTrainer}が算出した更新量を受け取り、自身を更新する
      *
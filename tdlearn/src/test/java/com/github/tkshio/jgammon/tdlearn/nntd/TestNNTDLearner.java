@@ -0,0 +1,42 @@
+package com.github.tkshio.jgammon.tdlearn.nntd;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestNNTDLearner {
+
+    // まとめて評価しても、1件ずつ評価した場合と同じ出力・勾配が得られる
+    @Test
+    public void evalAllMatchesEval() {
+        var tdn = NNTDLFactory.buildFactory().create(10, 8, 4);
+
+        Random r = new Random(1L);
+        double[][] inputs = new double[5][];
+        Arrays.setAll(inputs, i -> r.doubles(10).toArray());
+
+        var evals = tdn.evalAll(inputs);
+        assertEquals(inputs.length, evals.size());
+
+        for (int i = 0; i < inputs.length; i++) {
+            var expected = tdn.eval(inputs[i]);
+            var actual = evals.get(i);
+            assertArrayEquals(expected.getOutput(), actual.getOutput(), 1e-12);
+
+            var expectedGradient = expected.getGradient();
+            var actualGradient = actual.getGradient();
+            assertArrayEquals(
+                    expectedGradient.getOutputGradient().getWeight().getData()[0],
+                    actualGradient.getOutputGradient().getWeight().getData()[0], 1e-12);
+            assertArrayEquals(
+                    expectedGradient.getHiddenGradients().get(0).getWeight().getData()[0],
+                    actualGradient.getHiddenGradients().get(0).getWeight().getData()[0], 1e-12);
+        }
+
+        assertEquals(0, tdn.evalAll(new double[0][]).size());
+    }
+}
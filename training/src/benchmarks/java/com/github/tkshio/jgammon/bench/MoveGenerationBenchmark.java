@@ -0,0 +1,95 @@
+package com.github.tkshio.jgammon.bench;
+
+import com.github.tkshio.jgammon.gammon.BGType;
+import com.github.tkshio.jgammon.gammon.BackgammonBoard;
+import com.github.tkshio.jgammon.gammon.BenchmarkRollAppliers;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import com.github.tkshio.jgammon.gammon.move.RollApplier;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ムーブ生成の所要時間を計測するJMHベンチマーク
+
+Perftと同じ基準局面から、深さdepthまで展開する際にムーブ生成の対象となる局面を事前に集めておき、
+それらの局面・全ロールについてのプレイの列挙だけを計測する（子局面の生成は計測に含まない）。
+
+主な結果は全局面・全ロールの一巡あたりの時間で、副次的な結果 listupMoves:plays が、生成したプレイ1件あたりの時間となる。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoveGenerationBenchmark {
+    @Param({"standard", "half", "mini"})
+    public String bgType;
+
+    @Param({BenchmarkRollAppliers.MOVES_STACK, BenchmarkRollAppliers.MAKE_UNMAKE})
+    public String applier;
+
+    @Param({"2"})
+    public int depth;
+
+    private RollApplier<BackgammonBoard> rollApplier;
+    private List<BackgammonBoard> boards;
+    private long playsPerSweep;
+
+    @Setup
+    public void setup() {
+        rollApplier = BenchmarkRollAppliers.all().get(applier);
+        boards = new ArrayList<>();
+        for (var state : Perft.referencePositions(BGType.valueOf(bgType))) {
+            boards.addAll(Perft.generationBoards(state, depth));
+        }
+
+        // 一巡で生成されるプレイ数は一定なので、計測の外で数えておく
+        playsPerSweep = 0;
+        for (BackgammonBoard board : boards) {
+            for (Roll roll : Perft.rolls()) {
+                playsPerSweep += rollApplier.listupMoves(board, roll).count();
+            }
+        }
+    }
+
+    @Benchmark
+    public void listupMoves(Plays counter, Blackhole bh) {
+        for (BackgammonBoard board : boards) {
+            for (Roll roll : Perft.rolls()) {
+                rollApplier.listupMoves(board, roll).forEach(bh::consume);
+            }
+        }
+        counter.plays += playsPerSweep;
+    }
+
+    /**
+     * 生成したプレイ数、計測時間をこの件数で割った値がプレイ1件あたりの時間として出力される
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Plays {
+        public long plays;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            plays = 0;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.tkshio.jgammon.bench;
+
+import com.github.tkshio.jgammon.gammon.BGType;
+import com.github.tkshio.jgammon.gammon.BackgammonBoard;
+import com.github.tkshio.jgammon.gammon.BackgammonState;
+import com.github.tkshio.jgammon.gammon.BackgammonStateOperator;
+import com.github.tkshio.jgammon.gammon.BenchmarkRollAppliers;
+import com.github.tkshio.jgammon.gammon.move.CheckerPlay;
+import com.github.tkshio.jgammon.gammon.move.Roll;
+import com.github.tkshio.jgammon.gammon.move.RollApplier;
+import com.github.tkshio.jgammon.gammon.utils.RollUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/*
+ムーブ生成の検証を行うperft
+
+基準局面から、すべてのロールについて指定の深さまで可能なプレイを展開し、
+末端のプレイ数、末端の局面の種類数、生成したプレイの総数を、BGTypeとRollApplierの実装ごとに出力する。
+これらは実装によらず一致するはずなので、一致しない場合は例外とする。
+
+所要時間の計測は、同じ基準局面を使うJMHのベンチマーク（MoveGenerationBenchmark）で行う。
+
+引数： [深さ（既定値2）]
+ */
+public class Perft {
+    // 基準局面を生成する乱数の種
+    private static final long SEED = 20201010L;
+    // 基準局面とする手数
+    private static final int[] REFERENCE_PLIES = {0, 8, 16};
+
+    private static final List<Roll> ROLLS = new ArrayList<>(RollUtils.listupAllRolls(6));
+
+    public static void main(String[] args) {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 2;
+
+        Map<String, RollApplier<BackgammonBoard>> appliers = BenchmarkRollAppliers.all();
+
+        System.out.printf("%-8s %-4s %-10s %14s %12s %14s%n",
+                "type", "ply", "applier", "leaves", "unique", "plays");
+
+        for (BGType bgType : BGType.values()) {
+            for (BackgammonState state : referencePositions(bgType)) {
+                Result expected = null;
+                for (var entry : appliers.entrySet()) {
+                    var applier = entry.getValue();
+
+                    // 件数の集計と検証
+                    Set<Long> unique = new HashSet<>();
+                    Counter counter = new Counter();
+                    expand(applier, state, depth, counter, unique);
+                    Result result = new Result(counter.leaves, unique.size(), counter.plays);
+                    if (expected == null) {
+                        expected = result;
+                    } else if (!expected.equals(result)) {
+                        throw new IllegalStateException(String.format("%s ply=%d: %s %s, expected %s",
+                                bgType, state.getPly(), entry.getKey(), result, expected));
+                    }
+
+                    System.out.printf("%-8s %-4d %-10s %14d %12d %14d%n",
+                            bgType, state.getPly(), entry.getKey(),
+                            counter.leaves, unique.size(), counter.plays);
+                }
+            }
+        }
+    }
+
+    // 乱数で対局を進め、指定の手数の局面を集める
+    static List<BackgammonState> referencePositions(BGType bgType) {
+        var op = BackgammonStateOperator.create();
+        var applier = BenchmarkRollAppliers.all().get(BenchmarkRollAppliers.MOVES_STACK);
+        Random random = new Random(SEED);
+
+        List<BackgammonState> positions = new ArrayList<>();
+        BackgammonState state = op.redGoesFirst(BackgammonBoard.create(bgType));
+        for (int ply : REFERENCE_PLIES) {
+            while (state.getPly() < ply && !state.getResult().isOver()) {
+                var roll = ROLLS.get(random.nextInt(ROLLS.size()));
+                var plays = applier.listupMoves(state.getBoard(), roll).toArray(CheckerPlay[]::new);
+                state = state.withCheckerPlay(plays[random.nextInt(plays.length)]);
+            }
+            if (state.getResult().isOver()) {
+                break;
+            }
+            positions.add(state);
+        }
+        return positions;
+    }
+
+    // 全ロールについてdepthの深さまでプレイを展開し、末端の局面のハッシュ値を集める
+    private static void expand(RollApplier<BackgammonBoard> applier,
+                               BackgammonState state, int depth,
+                               Counter counter, Set<Long> unique) {
+        var board = state.getBoard();
+        for (Roll roll : ROLLS) {
+            var plays = applier.listupMoves(board, roll).toArray(CheckerPlay[]::new);
+            counter.plays += plays.length;
+            for (CheckerPlay play : plays) {
+                var next = state.withCheckerPlay(play);
+                if (depth == 1 || next.getResult().isOver()) {
+                    counter.leaves++;
+                    unique.add(next.getHash());
+                } else {
+                    expand(applier, next, depth - 1, counter, unique);
+                }
+            }
+        }
+    }
+
+    // depthの深さまで展開する際に、ムーブ生成の対象となる局面（手番側の盤面）を集める
+    static List<BackgammonBoard> generationBoards(BackgammonState state, int depth) {
+        var applier = BenchmarkRollAppliers.all().get(BenchmarkRollAppliers.MOVES_STACK);
+        List<BackgammonBoard> boards = new ArrayList<>();
+        collect(applier, state, depth, boards);
+        return boards;
+    }
+
+    private static void collect(RollApplier<BackgammonBoard> applier,
+                                BackgammonState state, int depth,
+                                List<BackgammonBoard> boards) {
+        boards.add(state.getBoard());
+        if (depth == 1) {
+            return;
+        }
+        for (Roll roll : ROLLS) {
+            applier.listupMoves(state.getBoard(), roll).forEach(play -> {
+                var next = state.withCheckerPlay(play);
+                if (!next.getResult().isOver()) {
+                    collect(applier, next, depth - 1, boards);
+                }
+            });
+        }
+    }
+
+    static List<Roll> rolls() {
+        return ROLLS;
+    }
+
+    private static class Counter {
+        long leaves;
+        long plays;
+    }
+
+    private static class Result {
+        final long leaves;
+        final long unique;
+        final long plays;
+
+        Result(long leaves, long unique, long plays) {
+            this.leaves = leaves;
+            this.unique = unique;
+            this.plays = plays;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Result)) {
+                return false;
+            }
+            var other = (Result) o;
+            return leaves == other.leaves && unique == other.unique && plays == other.plays;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode((leaves * 31 + unique) * 31 + plays);
+        }
+
+        @Override
+        public String toString() {
+            return "leaves=" + leaves + " unique=" + unique + " plays=" + plays;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.tkshio.jgammon.gammon;
+
+import com.github.tkshio.jgammon.gammon.move.RollApplier;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ベンチマークから、パッケージ内に閉じたRollApplierの各実装を参照するためのクラス
+ */
+public class BenchmarkRollAppliers {
+    public static final String MOVES_STACK = "movesStack";
+    public static final String MAKE_UNMAKE = "makeUnmake";
+
+    // 実装名と、その実装のRollApplier
+    public static Map<String, RollApplier<BackgammonBoard>> all() {
+        Map<String, RollApplier<BackgammonBoard>> appliers = new LinkedHashMap<>();
+        appliers.put(MOVES_STACK, BackgammonBoardRollApplier.create());
+        appliers.put(MAKE_UNMAKE, BackgammonBoardRollApplier.createMakeUnmake());
+        return appliers;
+    }
+}
@@ -1,15 +1,22 @@
 package com.github.tkshio.jgammon;
 
+import com.github.tkshio.jgammon.common.evaluator.MoveFilter;
+import com.github.tkshio.jgammon.common.evaluator.NPlyPlayer;
 import com.github.tkshio.jgammon.common.evaluator.OnePlyPlayer;
 import com.github.tkshio.jgammon.common.evaluator.PlayerBuilder;
+import com.github.tkshio.jgammon.common.evaluator.StateEvaluator;
 import com.github.tkshio.jgammon.common.evaluator.TwoPlyPlayer;
+import com.github.tkshio.jgammon.common.utils.SGTuple;
+import com.github.tkshio.jgammon.gammon.BackgammonDice;
 import com.github.tkshio.jgammon.gammon.BackgammonState;
+import com.github.tkshio.jgammon.gammon.BackgammonStateOperator;
 import com.github.tkshio.jgammon.tdlearn.TDConf;
 import com.github.tkshio.jgammon.tdlearn.TDLearnEvaluatorReader;
 import com.github.tkshio.jgammon.tdlearn.bg.BGConf;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ForkJoinPool;
 
 public class TDPlayerBuilder {
     private final static String path = "/td_default.txt";
@@ -24,26 +31,61 @@ public class TDPlayerBuilder {
     public static PlayerBuilder<BackgammonState> playerBuilderWithInputStream(
             InputStream is,
             int depth, TDConf<BackgammonState> conf) throws IOException {
+        return playerBuilderWithInputStream(is, depth, conf, ForkJoinPool.commonPool());
+    }
 
-        var evs = TDLearnEvaluatorReader.readAsStableEv(conf, is);
+    public static PlayerBuilder<BackgammonState> playerBuilderWithInputStream(
+            InputStream is,
+            int depth, ForkJoinPool pool) throws IOException {
+        TDConf<BackgammonState> conf = BGConf.builder().build();
+        return playerBuilderWithInputStream(is, depth, conf, pool);
+    }
 
+    public static PlayerBuilder<BackgammonState> playerBuilderWithInputStream(
+            InputStream is,
+            int depth, TDConf<BackgammonState> conf,
+            ForkJoinPool pool) throws IOException {
+        var evs = TDLearnEvaluatorReader.readAsStableEv(conf, is);
+        return playerBuilderWithEvs(evs, depth, pool);
+    }
 
+    // 読み込み済みの評価器を使う（複数のプレイヤーで評価器を共有する場合など）
+    public static PlayerBuilder<BackgammonState> playerBuilderWithEvs(
+            SGTuple<StateEvaluator<BackgammonState>> evs,
+            int depth,
+            ForkJoinPool pool) {
         PlayerBuilder<BackgammonState> player;
         if (depth == 1) {
             player = OnePlyPlayer.<BackgammonState>builder()
                     .evs(evs)
                     .name("TDLearn(1ply)");
-        } else {
+        } else if (depth == 2) {
             player = TwoPlyPlayer.<BackgammonState>builder()
                     .evs(evs)
+                    .pool(pool)
                     .name("TDLearn(2ply)");
+        } else {
+            // 先読み用の局面生成では、同一の盤面に至るプレイをまとめる
+            var op = BackgammonStateOperator.create(BackgammonDice.create(), true);
+            player = NPlyPlayer.<BackgammonState>builder()
+                    .evs(evs)
+                    .depth(depth)
+                    .nodeFactory(op::onDemandNode)
+                    // 1Plyの評価で上位の手と、それに近い手だけを深く読む
+                    .filter(MoveFilter.of(1, 8, 0.16))
+                    .pool(pool)
+                    .name("TDLearn(" + depth + "ply)");
         }
         return player;
     }
 
     public static PlayerBuilder<BackgammonState> defaultPlayerBuilder(int depth) throws IOException {
+        return defaultPlayerBuilder(depth, ForkJoinPool.commonPool());
+    }
+
+    public static PlayerBuilder<BackgammonState> defaultPlayerBuilder(int depth, ForkJoinPool pool) throws IOException {
         try (InputStream is = getDefaultTDAsStream()) {
-            return TDPlayerBuilder.playerBuilderWithInputStream(is, depth);
+            return TDPlayerBuilder.playerBuilderWithInputStream(is, depth, pool);
         }
     }
 
@@ -2,7 +2,7 @@ package com.github.tkshio.jgammon.app;
 
 import com.beust.jcommander.Parameter;
 import com.github.tkshio.jgammon.common.context.BundledGameContextHandler;
-import com.github.tkshio.jgammon.common.dice.RandomDice;
+import com.github.tkshio.jgammon.common.dice.SplittableDice;
 import com.github.tkshio.jgammon.common.utils.Memoizer;
 import com.github.tkshio.jgammon.gammon.BackgammonDice;
 import com.github.tkshio.jgammon.gammon.BackgammonState;
@@ -150,9 +150,13 @@ class CommonArgs {
             seed = new Random().nextLong();
         }
         logger.info("Seed = " + seed);
+        long gameSeed = seed;
         return BackgammonAutoPlay.builder()
                 .maxTurn(maxTurns)
-                .bgDice(BackgammonDice.create(RandomDice.create(6, seed)))
+                // 対局番号は1から始まるので、並列に実行した場合と同じ出目になる
+                .bgDice(BackgammonDice.create(SplittableDice.create(6, seed, 1)))
+                // 対局を並列に実行する場合は、対局ごとにダイスを生成する
+                .diceFactory(gameNo -> BackgammonDice.create(SplittableDice.create(6, gameSeed, gameNo)))
                 .contextHandler(bgLogger.get().build())
                 ;
     }
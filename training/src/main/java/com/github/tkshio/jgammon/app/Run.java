@@ -1,5 +1,6 @@
 package com.github.tkshio.jgammon.app;
 
+import com.github.tkshio.jgammon.common.context.SPRTGameContextHandler;
 import com.github.tkshio.jgammon.common.director.Player;
 import com.github.tkshio.jgammon.gammon.BackgammonState;
 import com.github.tkshio.jgammon.gammon.director.BackgammonAutoPlay;
@@ -11,6 +12,8 @@ import java.util.List;
 public class Run {
     private final List<Integer> program;
     private final BackgammonAutoPlay autoPlay;
+    private final SPRTGameContextHandler<BackgammonState> sprt;
+    private final RunCommandArgs args;
 
     public Run(RunCommand cmd) throws IOException {
         Player<BackgammonState> white = cmd.autoRunArgs.getWhitePlayer();
@@ -18,16 +21,27 @@ public class Run {
 
 
         var dConf = cmd.autoRunArgs.is2PlyMode() ?
-                BackgammonDirectorConf.twoPlyDirectorConf()
+                BackgammonDirectorConf.twoPlyDirectorConf(cmd.autoRunArgs.isReuseTree())
                 : BackgammonDirectorConf.onePlyDirectorConf();
 
-        autoPlay = cmd.commonArgs.autoPlayBuilder()
+        var builder = cmd.commonArgs.autoPlayBuilder()
                 .dConf(dConf)
                 .white(white)
                 .red(red)
-                .build();
+                .pool(cmd.autoRunArgs.getGamePool())
+                .duplicate(cmd.autoRunArgs.isDuplicate());
+
+        // 検定が指定されていれば、判定できた時点で対局を打ち切る
+        sprt = cmd.autoRunArgs.createSPRT(white);
+        if (sprt != null) {
+            builder.contextHandler(cmd.commonArgs.bgLogger.get().handler(sprt).build())
+                    .stopCondition(sprt::isDecided)
+                    .summary(sprt::summarize);
+        }
+        autoPlay = builder.build();
 
         program = cmd.program;
+        args = cmd.autoRunArgs;
     }
 
     public static void execute(RunCommand cmd) throws IOException {
@@ -36,10 +50,17 @@ public class Run {
     }
 
     public void execute() {
-        int no = 1;
-        for (int n : program) {
-            autoPlay.run(no, n);
-            no += n;
+        try {
+            int no = 1;
+            for (int n : program) {
+                if (sprt != null && sprt.isDecided()) {
+                    break;
+                }
+                autoPlay.run(no, n);
+                no += n;
+            }
+        } finally {
+            args.shutdownPools();
         }
     }
 }
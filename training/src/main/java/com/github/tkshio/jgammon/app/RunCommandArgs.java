@@ -3,10 +3,16 @@ package com.github.tkshio.jgammon.app;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import com.github.tkshio.jgammon.TDPlayerBuilder;
+import com.github.tkshio.jgammon.common.context.SPRTGameContextHandler;
 import com.github.tkshio.jgammon.common.director.Player;
+import com.github.tkshio.jgammon.common.evaluator.BatchingEvaluation;
+import com.github.tkshio.jgammon.common.evaluator.CachedStateEvaluator;
 import com.github.tkshio.jgammon.common.evaluator.OnePlyPlayer;
+import com.github.tkshio.jgammon.common.evaluator.StateEvaluator;
 import com.github.tkshio.jgammon.common.utils.SGTuple;
 import com.github.tkshio.jgammon.gammon.BackgammonState;
+import com.github.tkshio.jgammon.tdlearn.TDLearnEvaluatorReader;
+import com.github.tkshio.jgammon.tdlearn.bg.BGConf;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -14,8 +20,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class RunCommandArgs {
@@ -28,10 +37,61 @@ public class RunCommandArgs {
 
     @Parameter(names = "--depth",
             arity = 2,
-            description = "Set 1 for 1ply evaluation or 2 for 2ply evaluation"
+            description = "Set 1 for 1ply evaluation, 2 for 2ply evaluation, or more for N-ply evaluation"
     )
     List<String> depthStr = new ArrayList<>(List.of("1", "1"));
 
+    @Parameter(names = "--threads",
+            description = "Number of threads used for 2ply or deeper evaluation (0 to share the common pool)"
+    )
+    int threads = 0;
+
+    @Parameter(names = "--parallel-games",
+            description = "Number of games played concurrently (1 to play one game at a time)"
+    )
+    int parallelGames = 1;
+
+    @Parameter(names = "--reuse-tree",
+            description = "Keep positions generated by 2ply evaluation and reuse them in the following plies, "
+                    + "and cache evaluations shared by players using the same network"
+    )
+    boolean reuseTree = false;
+
+    @Parameter(names = "--cache-entries",
+            description = "Maximum number of evaluations cached per network and side with --reuse-tree (about 0.6KB each)"
+    )
+    int cacheEntries = 1 << 16;
+
+    @Parameter(names = "--duplicate",
+            description = "Play each dice sequence twice with players swapped, and report paired statistics (number of games must be even)"
+    )
+    boolean duplicate = false;
+
+    @Parameter(names = "--batch-eval",
+            description = "Advance concurrent games (--parallel-games) in lockstep and evaluate their candidates in one batch (depth 1 only)"
+    )
+    boolean batchEval = false;
+
+    @Parameter(names = "--sprt",
+            arity = 2,
+            description = "Stop when a sequential probability ratio test on the win rate of player \"O\" decides between P0 and P1 (e.g. 0.5 0.55)"
+    )
+    List<Double> sprt = new ArrayList<>();
+
+    @Parameter(names = "--sprt-error",
+            description = "Error bound used for both false positives and false negatives of --sprt"
+    )
+    double sprtError = 0.05;
+
+    private ForkJoinPool pool;
+    private ForkJoinPool gamePool;
+
+    // 並行する対局の評価をまとめる場合に、両プレイヤーで共有する
+    private final BatchingEvaluation<BackgammonState> batching = BatchingEvaluation.create();
+
+    // ネットワークのファイル名（既定のネットワークは空文字列）ごとの、包まれた評価器
+    private final Map<String, SGTuple<StateEvaluator<BackgammonState>>> networks = new HashMap<>();
+
 
     Player<BackgammonState> getWhitePlayer() throws IOException {
         return buildEv(evs.get(0), depthStr.get(0));
@@ -46,6 +106,38 @@ public class RunCommandArgs {
                 || depthStr.get(1).equalsIgnoreCase("2");
     }
 
+    // 対局を並列に実行するスレッドプール、1局ずつ実行する場合はnull
+    ForkJoinPool getGamePool() {
+        if (gamePool == null && parallelGames > 1) {
+            gamePool = new ForkJoinPool(parallelGames);
+        }
+        return gamePool;
+    }
+
+    // 生成したスレッドプールを終了する、共通プールは終了しない
+    void shutdownPools() {
+        if (gamePool != null) {
+            gamePool.shutdown();
+        }
+        if (pool != null && pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    boolean isReuseTree() {
+        return reuseTree;
+    }
+
+    boolean isDuplicate() {
+        return duplicate;
+    }
+
+    // 勝率の逐次検定、指定されていなければnull
+    SPRTGameContextHandler<BackgammonState> createSPRT(Player<BackgammonState> player) {
+        return sprt.isEmpty() ? null
+                : SPRTGameContextHandler.create(player, sprt.get(0), sprt.get(1), sprtError, sprtError);
+    }
+
     private Player<BackgammonState> buildEv(String name, String d) throws IOException {
         if (name.toLowerCase().startsWith("random")) {
             return buildRandomPlayer();
@@ -55,19 +147,7 @@ public class RunCommandArgs {
                     "" : name.substring(3);
 
             int depth = Integer.parseInt(d);
-            if (filename.isEmpty()) {
-                return TDPlayerBuilder.defaultPlayerBuilder(depth).build();
-            } else {
-                File file = new File(filename);
-                if (!file.exists()) {
-                    throw new IOException(MessageFormat.format(
-                            "File {0} not found.", file.toString()));
-                }
-
-                try (InputStream is = new FileInputStream(file)) {
-                    return TDPlayerBuilder.playerBuilderWithInputStream(is, depth).build();
-                }
-            }
+            return TDPlayerBuilder.playerBuilderWithEvs(getEvs(filename), depth, getPool()).build();
         } else {
             // 引数はチェック済なので
             throw new IllegalStateException();
@@ -75,6 +155,50 @@ public class RunCommandArgs {
 
     }
 
+    // 同じネットワークを使うプレイヤーの間では、評価器（キャッシュを含む）を共有する
+    private SGTuple<StateEvaluator<BackgammonState>> getEvs(String filename) throws IOException {
+        var evs = networks.get(filename);
+        if (evs == null) {
+            evs = readEvs(filename).apply(this::wrapEv);
+            networks.put(filename, evs);
+        }
+        return evs;
+    }
+
+    private SGTuple<StateEvaluator<BackgammonState>> readEvs(String filename) throws IOException {
+        if (filename.isEmpty()) {
+            try (InputStream is = TDPlayerBuilder.getDefaultTDAsStream()) {
+                return TDLearnEvaluatorReader.readAsStableEv(BGConf.builder().build(), is);
+            }
+        }
+
+        File file = new File(filename);
+        if (!file.exists()) {
+            throw new IOException(MessageFormat.format(
+                    "File {0} not found.", file.toString()));
+        }
+
+        try (InputStream is = new FileInputStream(file)) {
+            return TDLearnEvaluatorReader.readAsStableEv(BGConf.builder().build(), is);
+        }
+    }
+
+    private StateEvaluator<BackgammonState> wrapEv(StateEvaluator<BackgammonState> ev) {
+        var wrapped = batchEval ? batching.wrap(ev) : ev;
+        // 一方のプレイヤーが先読みで評価した局面を、他方が候補手として評価する際などに、キャッシュから評価値を得る
+        return reuseTree
+                ? CachedStateEvaluator.create(wrapped, BackgammonState::getHash, cacheEntries, CachedStateEvaluator.Eviction.LRU)
+                : wrapped;
+    }
+
+    // 両プレイヤーで同じプールを共有する
+    private ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = (threads == 0) ? ForkJoinPool.commonPool() : new ForkJoinPool(threads);
+        }
+        return pool;
+    }
+
     private Player<BackgammonState> buildRandomPlayer() {
         Random r = new Random();
         return OnePlyPlayer.<BackgammonState>builder()
@@ -93,11 +217,41 @@ public class RunCommandArgs {
             }
         }
 
+        if (parallelGames < 1) {
+            throw new ParameterException("Parallel games must be 1 or more");
+        }
+
+        if (!sprt.isEmpty() && !(0 < sprt.get(0) && sprt.get(0) < sprt.get(1) && sprt.get(1) < 1)) {
+            throw new ParameterException("SPRT requires 0 < P0 < P1 < 1");
+        }
+
+        if (!(0 < sprtError && sprtError < 1)) {
+            throw new ParameterException("SPRT error bound must be between 0 and 1");
+        }
+
+        // キャッシュのセグメント数（64）以上が必要
+        if (cacheEntries < 64) {
+            throw new ParameterException("Cache entries must be 64 or more");
+        }
+
+        if (threads < 0) {
+            throw new ParameterException("Threads must be 0 or more");
+        }
+
         for (String dStr : depthStr) {
             var d = Integer.parseInt(dStr);
-            if (d != 1 && d != 2) {
-                throw new ParameterException("Depth must be 1 or 2");
+            if (d < 1) {
+                throw new ParameterException("Depth must be 1 or more");
             }
+            // 2Ply以上の評価は評価用のスレッドプールで行われるので、対局ごとにまとめられない
+            if (batchEval && d > 1) {
+                throw new ParameterException("Batch evaluation requires depth 1");
+            }
+        }
+
+        // 1局ずつ対局する場合は、まとめる評価要求がない
+        if (batchEval && parallelGames < 2) {
+            throw new ParameterException("Batch evaluation requires parallel games (--parallel-games) of 2 or more");
         }
     }
 }
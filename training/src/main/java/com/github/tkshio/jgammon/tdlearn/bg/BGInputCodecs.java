@@ -74,7 +74,6 @@ public class BGInputCodecs {
 
     private static double[] encodeBG(BackgammonBoard board, int boardSize, int inputSize) {
         double[] input = new double[inputSize];
-        int white = 0, red = 0;
         for (int i = 0; i < boardSize; i++) {
             int p = board.getPointAt(i + 1);
             if (p > 0) {
@@ -82,23 +81,23 @@ public class BGInputCodecs {
                 input[i * 8 + 1] = (p > 1) ? 1.0 : 0.0;
                 input[i * 8 + 2] = (p > 2) ? 1.0 : 0.0;
                 input[i * 8 + 3] = (p > 3) ? (double) (p - 3) / 2.0 : 0.0;
-                white += p;
             } else if (p < 0) {
                 input[i * 8 + 4] = 1.0;
                 input[i * 8 + 5] = (-p > 1) ? 1.0 : 0.0;
                 input[i * 8 + 6] = (-p > 2) ? 1.0 : 0.0;
                 input[i * 8 + 7] = (-p > 3) ? (double) (-p - 3) / 2.0 : 0.0;
-                red -= p;
             }
         }
         int pieces = board.getInitialPieces();
+        int bar = board.getPointAt(0);
+        int opponentBar = -board.getPointAt(board.getBearOffPos());
         // オンザバー
-        input[boardSize * 8] = (double) board.getPointAt(0) / 2.0;
-        input[boardSize * 8 + 1] = (double) (-board.getPointAt(board.getBearOffPos())) / 2.0;
+        input[boardSize * 8] = (double) bar / 2.0;
+        input[boardSize * 8 + 1] = (double) opponentBar / 2.0;
 
-        // ベアオフ済
-        input[boardSize * 8 + 2] = (double) (pieces - white) / pieces;
-        input[boardSize * 8 + 3] = (double) (pieces - red) / pieces;
+        // ベアオフ済（盤面が保持する値を使用する、従来の集計に合わせてオンザバーの駒もここに含める）
+        input[boardSize * 8 + 2] = (double) (board.getBorneOffCount() + bar) / pieces;
+        input[boardSize * 8 + 3] = (double) (board.getOpponentBorneOffCount() + opponentBar) / pieces;
 
         // 手番（先手）
         input[boardSize * 8 + 4] = 1.0;